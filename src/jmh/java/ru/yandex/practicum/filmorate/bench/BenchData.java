@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.metrics.DomainMetrics;
+import ru.yandex.practicum.filmorate.metrics.MeteredJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.services.CoLikeIndex;
+import ru.yandex.practicum.filmorate.services.CollectionVersions;
+import ru.yandex.practicum.filmorate.services.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.services.DatasetExporter;
+import ru.yandex.practicum.filmorate.services.FilmBulkImporter;
+import ru.yandex.practicum.filmorate.services.FilmEvent;
+import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.services.FriendGraph;
+import ru.yandex.practicum.filmorate.services.LikeEvent;
+import ru.yandex.practicum.filmorate.services.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.services.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.services.UserService;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
+import ru.yandex.practicum.filmorate.storage.export.ExportDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.migration.SchemaMigrator;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validation.FilmValidator;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Набор данных для бенчмарков: хранилища и сервисы, собранные без Spring-контекста
+ * и заполненные фильмами, пользователями, дружбой и лайками.
+ * <p>
+ * Лайки распределены со скосом: id фильма выбирается как floor(r^3 * films), поэтому
+ * фильмы с малыми id собирают основную массу лайков — как популярные фильмы в каталоге.
+ * Пользователи 1 и 2 — «хабы» с тысячами друзей (во многом общих), остальные — с десятком.
+ * В БД годы выпуска фильмов равномерно занимают YEARS лет начиная с FIRST_YEAR, жанр — один из шести.
+ */
+final class BenchData {
+
+    static final int LIKES_PER_FILM = 2;
+    static final int HUB_FRIENDS = 5_000;
+    static final int REGULAR_FRIENDS = 10;
+    static final long HUB = 1L;
+    static final long OTHER_HUB = 2L;
+    static final int FIRST_YEAR = 1950;
+    static final int YEARS = 70;
+
+    private static final int BATCH = 10_000;
+
+    final FilmStorage filmStorage;
+    final UserStorage userStorage;
+    final FilmService filmService;
+    final UserService userService;
+    final FriendGraph friendGraph;
+    final CoLikeIndex coLikes;
+    final FilmSearchIndex searchIndex;
+    final int films;
+    final int users;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final PopularityLeaderboard leaderboard;
+    private final CollectionVersions versions;
+    private final DomainMetrics metrics;
+
+    private BenchData(FilmStorage filmStorage, UserStorage userStorage, int films, int users,
+                      HikariDataSource dataSource, JdbcTemplate jdbc) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        // данные уже засеяны в обход сервисов — рейтинг строится по ним, как при старте приложения
+        this.leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.rebuild();
+        this.metrics = new DomainMetrics(new SimpleMeterRegistry());
+        // пользователи в бенчмарках не удаляются — событий от UserService никто не ждёт
+        this.coLikes = new CoLikeIndex(filmStorage, 20, 0);
+        coLikes.rebuild();
+        this.searchIndex = new FilmSearchIndex(filmStorage, leaderboard, 0.2, 0);
+        searchIndex.rebuild();
+        this.friendGraph = new FriendGraph(userStorage);
+        friendGraph.rebuild();
+        this.versions = new CollectionVersions();
+        this.userService = new UserService(userStorage, leaderboard, metrics, event -> {
+        }, friendGraph, versions);
+        this.filmService = filmService(Duration.ZERO);
+        this.films = films;
+        this.users = users;
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Сервис фильмов над теми же хранилищами и рейтингом, со своим кешем популярных.
+     */
+    FilmService filmService(Duration popularStaleness) {
+        PopularFilmsCache cache = new PopularFilmsCache(new SimpleMeterRegistry(), popularStaleness, 64);
+        return new FilmService(filmStorage, userService, new FilmValidator(filmStorage), leaderboard, metrics,
+                cache, event -> {
+                    if (event instanceof FilmEvent filmEvent) {
+                        cache.onFilmEvent(filmEvent);
+                        versions.onFilmEvent(filmEvent);
+                    }
+                    if (event instanceof LikeEvent likeEvent) coLikes.onLikeEvent(likeEvent);
+                }, coLikes, searchIndex, versions);
+    }
+
+    /**
+     * Пакетная загрузка над тем же хранилищем фильмов и рейтингом; события никто не слушает.
+     */
+    FilmBulkImporter bulkImporter(int chunkSize) {
+        return new FilmBulkImporter(filmStorage, new FilmValidator(filmStorage), leaderboard, searchIndex, event -> {
+        }, JsonMapper.builder().findAndAddModules().build(), chunkSize, 65_536);
+    }
+
+    /**
+     * Выгрузка таблиц из той же БД; только для storage = db.
+     */
+    DatasetExporter exporter() {
+        if (jdbc == null) throw new IllegalStateException("выгрузка есть только у БД");
+        return new DatasetExporter(new ExportDbStorage(jdbc), JsonMapper.builder().findAndAddModules().build());
+    }
+
+    static BenchData create(String storage, int films) {
+        int users = Math.max(2 * HUB_FRIENDS + 3, films / 10);
+        return switch (storage) {
+            case "db" -> database(films, users, QueryFanOut.sequential(), Duration.ZERO, false);
+            case "memory" -> memory(films, users);
+            default -> throw new IllegalArgumentException("storage: db | memory, получено " + storage);
+        };
+    }
+
+    void close() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("benchmark film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        film.setMpa(new Mpa(3L, null));
+        film.getGenres().add(new Genre(1L, null));
+        film.getGenres().add(new Genre(2L, null));
+        return film;
+    }
+
+    /**
+     * БД с заданной задержкой каждого запроса — имитация сетевого round-trip до удалённого Postgres.
+     */
+    static BenchData database(int films, QueryFanOut fanOut, Duration latency) {
+        return database(films, Math.max(2 * HUB_FRIENDS + 3, films / 10), fanOut, latency, false);
+    }
+
+    /**
+     * БД без задержки; metered — запросы идут через MeteredJdbcTemplate, как в приложении.
+     */
+    static BenchData database(int films, boolean metered) {
+        return database(films, Math.max(2 * HUB_FRIENDS + 3, films / 10), QueryFanOut.sequential(), Duration.ZERO,
+                metered);
+    }
+
+    private static BenchData database(int films, int users, QueryFanOut fanOut, Duration latency, boolean metered) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl("jdbc:h2:mem:bench_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        ds.setUsername("sa");
+        ds.setMaximumPoolSize(10);
+
+        new SchemaMigrator(ds).migrate();
+
+        seedDatabase(new JdbcTemplate(ds), films, users);
+
+        DataSource target = latency.isZero() ? ds : new LatencyDataSource(ds, latency);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JdbcTemplate jdbc = metered ? new MeteredJdbcTemplate(target, () -> registry) : new JdbcTemplate(target);
+        NamedParameterJdbcTemplate namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbc, namedJdbc, new FilmRowMapper(), fanOut);
+        filmStorage.refreshReferenceData();
+        return new BenchData(filmStorage, new UserDbStorage(jdbc, namedJdbc, fanOut), films, users, ds, jdbc);
+    }
+
+    private static void seedDatabase(JdbcTemplate jdbc, int films, int users) {
+        SplittableRandom rnd = new SplittableRandom(42);
+
+        batches(users, (from, to) -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                rows.add(new Object[]{"u" + i + "@bench.io", "u" + i, "User " + i, Date.valueOf("1990-01-01")});
+            }
+            jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+        });
+
+        batches(films, (from, to) -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                int year = FIRST_YEAR + i % YEARS;
+                rows.add(new Object[]{"Film " + i, "description " + i, Date.valueOf(LocalDate.of(year, 1, 1)), year,
+                        90 + i % 60, 1 + i % 5});
+            }
+            jdbc.batchUpdate("INSERT INTO films (name, description, release_date, release_year, duration, mpa_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        });
+
+        batches(films, (from, to) -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (long id = from + 1; id <= to; id++) {
+                rows.add(new Object[]{id, 1 + id % 6});
+            }
+            jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", rows);
+        });
+
+        batches(films * LIKES_PER_FILM, (from, to) -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                rows.add(new Object[]{skewedFilm(rnd, films), 1 + rnd.nextInt(users)});
+            }
+            jdbc.batchUpdate("MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)", rows);
+        });
+        // лайки залиты в обход FilmDbStorage — счётчики и копии в film_genres досчитываем разом
+        jdbc.update("UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)");
+        jdbc.update("UPDATE film_genres fg SET (likes_count, release_year) = "
+                + "(SELECT f.likes_count, f.release_year FROM films f WHERE f.id = fg.film_id)");
+
+        List<Object[]> friendships = new ArrayList<>();
+        forEachFriendship(users, rnd, (from, to) -> friendships.add(new Object[]{from, to}));
+        jdbc.batchUpdate("MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                friendships);
+    }
+
+    private static BenchData memory(int films, int users) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        SplittableRandom rnd = new SplittableRandom(42);
+
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setEmail("u" + i + "@bench.io");
+            user.setLogin("u" + i);
+            user.setName("User " + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90 + i % 60);
+            film.setMpa(filmStorage.getMpaById(1L + i % 5));
+            film.getGenres().add(filmStorage.getGenreById(1L + (i + 1) % 6));
+            filmStorage.create(film);
+        }
+        for (long i = 0; i < (long) films * LIKES_PER_FILM; i++) {
+            filmStorage.addLike(skewedFilm(rnd, films), 1L + rnd.nextInt(users));
+        }
+        forEachFriendship(users, rnd,
+                (from, to) -> userStorage.setFriendConnection(from, to, FriendshipStatus.CONFIRMED));
+        return new BenchData(filmStorage, userStorage, films, users, null, null);
+    }
+
+    static long skewedFilm(SplittableRandom rnd, int films) {
+        double r = rnd.nextDouble();
+        return 1L + (long) (r * r * r * films);
+    }
+
+    private static void forEachFriendship(int users, SplittableRandom rnd, EdgeSink sink) {
+        // два хаба с пересекающимися наполовину списками друзей
+        for (long f = 3; f < 3 + HUB_FRIENDS; f++) {
+            sink.accept(HUB, f);
+            sink.accept(OTHER_HUB, f + HUB_FRIENDS / 2);
+        }
+        for (long u = 3; u <= users; u++) {
+            for (int k = 0; k < REGULAR_FRIENDS; k++) {
+                long friend = 1L + rnd.nextInt(users);
+                if (friend != u) sink.accept(u, friend);
+            }
+        }
+    }
+
+    private static void batches(long total, RangeSink sink) {
+        for (long from = 0; from < total; from += BATCH) {
+            sink.accept((int) from, (int) Math.min(total, from + BATCH));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeSink {
+        void accept(int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface EdgeSink {
+        void accept(long from, long to);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.services.FilmBulkImporter;
+import ru.yandex.practicum.filmorate.services.FilmService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка NDJSON из LINES фильмов: пакетный импорт порциями по chunkSize против создания
+ * фильмов по одному через FilmService (по запросу на фильм и на его жанры, каждый в своей транзакции).
+ * Результат — фильмов в секунду. Каталог растёт от итерации к итерации, как при реальной загрузке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    private static final int LINES = 10_000;
+
+    @Param({"1", "100", "1000"})
+    public int chunkSize;
+
+    private BenchData data;
+    private FilmBulkImporter importer;
+    private FilmService filmService;
+    private ObjectMapper objectMapper;
+    private String ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = BenchData.create("db", 1_000);
+        importer = data.bulkImporter(chunkSize);
+        filmService = data.filmService;
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            Film film = data.newFilm("Bulk " + i);
+            film.setDescription("bulk film " + i);
+            film.setDuration(60 + i % 120);
+            sb.append(objectMapper.writeValueAsString(film)).append('\n');
+        }
+        ndjson = sb.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int bulkImport() throws IOException {
+        return importer.importNdjson(new StringReader(ndjson), Writer.nullWriter());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int oneByOne() throws IOException {
+        BufferedReader lines = new BufferedReader(new StringReader(ndjson));
+        int created = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            filmService.create(objectMapper.readValue(line, Film.class));
+            created++;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.services.DatasetExporter;
+import ru.yandex.practicum.filmorate.storage.export.ExportDataset;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полная выгрузка film_likes (films * 2 строки) в /dev/null. С -prof gc видно, что на строку
+ * приходится постоянный объём короткоживущих аллокаций — выгрузка ничего не копит в памяти.
+ * Ограничить -Xmx здесь нельзя: H2 в режиме mem хранит саму БД в той же куче.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"ndjson", "csv"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private BenchData data;
+    private DatasetExporter exporter;
+    private long[] fromStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.create("db", films);
+        exporter = data.exporter();
+        fromStart = exporter.cursor(ExportDataset.FILM_LIKES, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public long exportLikes() throws IOException {
+        try (OutputStream out = gzip ? DatasetExporter.gzip(OutputStream.nullOutputStream())
+                : OutputStream.nullOutputStream()) {
+            return exporter.export(ExportDataset.FILM_LIKES, DatasetExporter.Format.of(format), fromStart, out);
+        }
+    }
+}
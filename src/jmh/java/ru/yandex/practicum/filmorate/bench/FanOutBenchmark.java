@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getById с последовательными и параллельными подзапросами при задержке каждого запроса,
+ * имитирующей удалённый Postgres. При latencyMs > 0 параллельный режим должен приближаться
+ * к одному round-trip вместо трёх (фильм) и двух (пользователь).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"0", "1", "5"})
+    public int latencyMs;
+
+    @Param({"sequential", "parallel"})
+    public String mode;
+
+    private BenchData data;
+    private final SplittableRandom rnd = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        QueryFanOut fanOut = mode.equals("parallel")
+                ? new QueryFanOut(Executors.newCachedThreadPool(), 4, Duration.ofSeconds(5))
+                : QueryFanOut.sequential();
+        data = BenchData.database(10_000, fanOut, Duration.ofMillis(latencyMs));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return data.filmStorage.getById(1L + rnd.nextInt(data.films));
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return data.userStorage.getById(1L + rnd.nextInt(data.users));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути работы с фильмами: хранилище (findAll/getById/create/update)
+ * и сервис (getTopFilms/addLike) — для БД (H2) и InMemory-хранилищ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int films;
+
+    @Param({"db", "memory"})
+    public String storage;
+
+    private BenchData data;
+    private Film updateTemplate;
+    private final SplittableRandom rnd = new SplittableRandom(7);
+    private long seq;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.create(storage, films);
+        // самый популярный фильм — худший случай для записи агрегата
+        updateTemplate = data.filmStorage.getById(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public Collection<Film> findAll() {
+        return data.filmStorage.findAll();
+    }
+
+    @Benchmark
+    public Film getById() {
+        return data.filmStorage.getById(1L + rnd.nextInt(films));
+    }
+
+    @Benchmark
+    public Film create() {
+        return data.filmStorage.create(data.newFilm("created " + seq++));
+    }
+
+    @Benchmark
+    public Film update() {
+        updateTemplate.setName("updated " + seq++);
+        return data.filmStorage.update(updateTemplate);
+    }
+
+    @Benchmark
+    public Collection<Film> getTopFilms() {
+        return data.filmService.getTopFilms(10);
+    }
+
+    @Benchmark
+    public void addLike() {
+        data.filmService.addLike(BenchData.skewedFilm(rnd, films), 1L + rnd.nextInt(data.users));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.core.BodyFilters;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+import org.zalando.logbook.core.DefaultSink;
+import org.zalando.logbook.json.JsonHttpLogFormatter;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.logging.AsyncHttpLogWriter;
+import ru.yandex.practicum.filmorate.logging.SampledRequestCondition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность фильтра Logbook на ответе /films размером bodyKb при записи журнала в файл:
+ * none — без журнала, sync — прежняя настройка (каждый запрос, тело целиком, запись в потоке запроса),
+ * async — очередь и обрезка тел до 2 КБ, sampled — то же при выборке 10% запросов.
+ * В async при переполнении очереди сообщения отбрасываются — это и есть отданная за пропускную способность цена.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HttpLogBenchmark {
+
+    @Param({"1", "256"})
+    public int bodyKb;
+
+    @Param({"none", "sync", "async", "sampled"})
+    public String mode;
+
+    private byte[] body;
+    private LogbookFilter filter;
+    private AsyncHttpLogWriter asyncWriter;
+    private FileAppender<ILoggingEvent> appender;
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        body = filmsJson(bodyKb * 1024);
+        logFile = File.createTempFile("filmorate-http-log", ".log");
+        appender = fileLogger(logFile);
+
+        Logbook logbook = switch (mode) {
+            case "none" -> null;
+            case "sync" -> Logbook.builder()
+                    .sink(new DefaultSink(new JsonHttpLogFormatter(), new DefaultHttpLogWriter()))
+                    .build();
+            case "async", "sampled" -> {
+                asyncWriter = new AsyncHttpLogWriter(10_000, new SimpleMeterRegistry());
+                yield Logbook.builder()
+                        .condition(new SampledRequestCondition(mode.equals("sampled") ? 0.1 : 1.0))
+                        .bodyFilter(BodyFilters.truncate(2048))
+                        .sink(new DefaultSink(new JsonHttpLogFormatter(), asyncWriter))
+                        .build();
+            }
+            default -> throw new IllegalArgumentException(mode);
+        };
+        filter = logbook == null ? null : new LogbookFilter(logbook);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (asyncWriter != null) asyncWriter.destroy();
+        appender.stop();
+        logFile.delete();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getFilms() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain controller = (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write(body);
+        };
+        if (filter == null) {
+            controller.doFilter(request, response);
+        } else {
+            filter.doFilter(request, response, controller);
+        }
+        return response;
+    }
+
+    private static FileAppender<ILoggingEvent> fileLogger(File file) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.getAbsolutePath());
+        appender.setEncoder(encoder);
+        appender.start();
+
+        ch.qos.logback.classic.Logger logger = context.getLogger(Logbook.class);
+        logger.setLevel(ch.qos.logback.classic.Level.TRACE);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return appender;
+    }
+
+    private static byte[] filmsJson(int size) {
+        StringBuilder json = new StringBuilder(size + 256).append('[');
+        for (int id = 1; json.length() < size; id++) {
+            if (id > 1) json.append(',');
+            json.append("{\"id\":").append(id)
+                    .append(",\"name\":\"Фильм ").append(id)
+                    .append("\",\"description\":\"Описание фильма\",\"releaseDate\":\"2000-01-01\"")
+                    .append(",\"duration\":120,\"mpa\":{\"id\":1,\"name\":\"G\"},\"genres\":[],\"likes\":[1,2,3]}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
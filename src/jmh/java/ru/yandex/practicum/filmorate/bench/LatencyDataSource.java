@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Добавляет фиксированную задержку к каждому выполнению запроса — как сетевой round-trip
+ * до удалённой БД, которого нет у встроенной H2.
+ */
+final class LatencyDataSource extends DelegatingDataSource {
+
+    private final long latencyNanos;
+
+    LatencyDataSource(DataSource target, Duration latency) {
+        super(target);
+        this.latencyNanos = latency.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    private <T> T proxy(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (p, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        LockSupport.parkNanos(latencyNanos);
+                    }
+                    try {
+                        Object result = method.invoke(target, args);
+                        if (result instanceof PreparedStatement ps) return proxy(PreparedStatement.class, ps);
+                        if (result instanceof Statement st) return proxy(Statement.class, st);
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость множества лайков популярного фильма: заполнение и проверка вхождения.
+ * С -prof gc показатель gc.alloc.rate.norm даёт байты на заполнение всего множества.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikeSetBenchmark {
+
+    @Param({"1000", "100000"})
+    public int likes;
+
+    private LongHashSet primitive;
+    private Set<Long> boxed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        primitive = fillPrimitive();
+        boxed = fillBoxed();
+    }
+
+    @Benchmark
+    public LongHashSet fillPrimitive() {
+        LongHashSet set = new LongHashSet();
+        for (long id = 1; id <= likes; id++) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<Long> fillBoxed() {
+        Set<Long> set = new HashSet<>();
+        for (long id = 1; id <= likes; id++) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public int containsPrimitive() {
+        int hits = 0;
+        for (long id = 1; id <= likes; id += 7) {
+            if (primitive.contains(id)) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int containsBoxed() {
+        int hits = 0;
+        for (long id = 1; id <= likes; id += 7) {
+            if (boxed.contains(id)) hits++;
+        }
+        return hits;
+    }
+}
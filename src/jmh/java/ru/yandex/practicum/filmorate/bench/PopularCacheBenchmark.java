@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.services.FilmService;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /films/popular под потоком лайков: три потока читают топ, один ставит лайки со смещением
+ * к популярным фильмам (худший случай — лайки попадают в закешированный топ).
+ * stalenessMs = 0 — каждый такой лайк сбрасывает запись, иначе запись живёт до stalenessMs после него.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularCacheBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"db", "memory"})
+    public String storage;
+
+    @Param({"0", "100"})
+    public int stalenessMs;
+
+    private BenchData data;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.create(storage, films);
+        filmService = data.filmService(Duration.ofMillis(stalenessMs));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Likes {
+        final SplittableRandom rnd = new SplittableRandom();
+    }
+
+    @Benchmark
+    @Group("popular")
+    @GroupThreads(3)
+    public Collection<Film> getTopFilms() {
+        return filmService.getTopFilms(10);
+    }
+
+    @Benchmark
+    @Group("popular")
+    @GroupThreads(1)
+    public void addLike(Likes likes) {
+        filmService.addLike(BenchData.skewedFilm(likes.rnd, films), 1L + likes.rnd.nextInt(data.users));
+    }
+}
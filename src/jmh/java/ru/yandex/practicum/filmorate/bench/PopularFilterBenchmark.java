@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Популярные фильмы жанра и/или года из БД — то, что делает загрузка /films/popular с фильтром
+ * при промахе кеша: id из вторичного индекса, затем сами фильмы. Время не должно расти
+ * с размером каталога: индекс читается в порядке выдачи и останавливается на count строках.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PopularFilterBenchmark {
+
+    private static final int COUNT = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    public int films;
+
+    private BenchData data;
+    private final SplittableRandom rnd = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.database(films, QueryFanOut.sequential(), Duration.ZERO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public List<Film> byGenre() {
+        return load(genre(), null);
+    }
+
+    @Benchmark
+    public List<Film> byYear() {
+        return load(null, year());
+    }
+
+    @Benchmark
+    public List<Film> byGenreAndYear() {
+        return load(genre(), year());
+    }
+
+    private List<Film> load(Long genreId, Integer year) {
+        return data.filmStorage.findByIds(data.filmStorage.findPopularIds(COUNT, genreId, year));
+    }
+
+    private long genre() {
+        return 1L + rnd.nextInt(6);
+    }
+
+    private int year() {
+        return BenchData.FIRST_YEAR + rnd.nextInt(BenchData.YEARS);
+    }
+}
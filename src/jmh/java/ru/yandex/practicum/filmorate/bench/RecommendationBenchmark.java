@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.services.CoLikeIndex;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс совместных лайков: чтение похожих фильмов и рекомендаций и полная пересборка
+ * в 1 поток и по числу ядер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"1", "0"})
+    public int buildParallelism;
+
+    private BenchData data;
+    private final SplittableRandom rnd = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.create("db", films);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    // популярные фильмы — самые тяжёлые для подсчёта совместных лайков
+    @Benchmark
+    public long[] similarToPopular() {
+        return data.coLikes.similar(BenchData.skewedFilm(rnd, films), 10);
+    }
+
+    @Benchmark
+    public long[] recommendations() {
+        return data.coLikes.recommendations(1L + rnd.nextInt(data.users), 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public CoLikeIndex rebuild() {
+        CoLikeIndex index = new CoLikeIndex(data.filmStorage, 20, buildParallelism);
+        index.rebuild();
+        return index;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.services.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.services.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поисковый индекс на каталоге с правдоподобными текстами: слова из словаря на VOCABULARY слов
+ * (русские и английские вперемешку) с частотами по закону Ципфа, 2–4 слова в названии и 10–20
+ * в описании. Type-ahead — три первые буквы слова, выбранного с той же частотой, что и в текстах.
+ * <p>
+ * Общие BenchData тут не подходят: названия «Film N» дают одно слово на весь каталог.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// каталог и индекс на 1M фильмов не помещаются в куче по умолчанию
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final int VOCABULARY = 30_000;
+    private static final int QUERIES = 1024;
+    private static final String[] LATIN = {"ka", "lo", "mi", "ra", "tu", "ne", "so", "ve", "da", "zi",
+            "bor", "fen", "gal", "hut", "jor", "kin", "lum", "mar", "nos", "pel"};
+    private static final String[] CYRILLIC = {"ка", "ло", "ми", "ра", "ту", "не", "со", "ве", "да", "зи",
+            "бор", "фен", "гал", "хут", "жор", "кин", "лум", "мар", "нос", "пел"};
+
+    @Param({"1000000"})
+    public int films;
+
+    @Param({"0"})
+    public int buildParallelism;
+
+    private InMemoryFilmStorage storage;
+    private PopularityLeaderboard leaderboard;
+    private FilmSearchIndex index;
+    private final String[] prefixes = new String[QUERIES];
+    private final String[] twoWords = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            String[] syllables = i % 2 == 0 ? LATIN : CYRILLIC;
+            StringBuilder word = new StringBuilder();
+            for (int s = 0, n = 2 + rnd.nextInt(3); s < n; s++) word.append(syllables[rnd.nextInt(syllables.length)]);
+            words[i] = word.toString();
+        }
+
+        storage = new InMemoryFilmStorage();
+        leaderboard = new PopularityLeaderboard(storage);
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName(capitalize(text(words, rnd, 2 + rnd.nextInt(3))));
+            film.setDescription(text(words, rnd, 10 + rnd.nextInt(11)));
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            film.setMpa(storage.getMpaById(1L));
+            long id = storage.create(film).getId();
+            // лайки тоже по Ципфу: у большинства фильмов их почти нет
+            leaderboard.add(id, (int) (1000 / (1 + rnd.nextDouble() * 999)));
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            String prefix = zipf(words, rnd).substring(0, 3);
+            prefixes[i] = prefix;
+            twoWords[i] = zipf(words, rnd) + " " + prefix;
+        }
+        index = newIndex();
+        index.rebuild();
+    }
+
+    @Benchmark
+    public long[] typeAhead() {
+        return index.search(prefixes[next++ & (QUERIES - 1)], FilmSearchIndex.ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public long[] typeAheadSecondWord() {
+        return index.search(twoWords[next++ & (QUERIES - 1)], FilmSearchIndex.ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public long[] typeAheadTitle() {
+        return index.search(prefixes[next++ & (QUERIES - 1)], FilmSearchIndex.TITLE, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public FilmSearchIndex rebuild() {
+        FilmSearchIndex rebuilt = newIndex();
+        rebuilt.rebuild();
+        return rebuilt;
+    }
+
+    private FilmSearchIndex newIndex() {
+        return new FilmSearchIndex(storage, leaderboard, 0.2, buildParallelism);
+    }
+
+    private static String text(String[] words, SplittableRandom rnd, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) text.append(' ');
+            text.append(zipf(words, rnd));
+        }
+        return text.toString();
+    }
+
+    // ранг log-равномерен — частота слова обратно пропорциональна рангу
+    private static String zipf(String[] words, SplittableRandom rnd) {
+        return words[(int) Math.pow(words.length, rnd.nextDouble()) - 1];
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена замера SQL: findAll всего каталога (три запроса, сотни тысяч строк) через обычный
+ * JdbcTemplate и через MeteredJdbcTemplate. Замер идёт раз на запрос, а не на строку,
+ * поэтому разница должна быть в пределах погрешности.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlMetricsBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"plain", "metered"})
+    public String template;
+
+    private BenchData data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.database(films, template.equals("metered"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public Collection<Film> findAll() {
+        return data.filmStorage.findAll();
+    }
+}
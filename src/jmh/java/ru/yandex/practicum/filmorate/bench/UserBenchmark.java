@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списки друзей и рекомендации: «хаб» с тысячами друзей и обычный пользователь с десятком.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int films;
+
+    @Param({"db", "memory"})
+    public String storage;
+
+    private BenchData data;
+    private final SplittableRandom rnd = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.create(storage, films);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public List<User> getFriendsOfHub() {
+        return data.userService.getFriends(BenchData.HUB);
+    }
+
+    @Benchmark
+    public List<User> getFriendsOfRegularUser() {
+        return data.userService.getFriends(3L + rnd.nextInt(data.users - 2));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriendsOfHubs() {
+        return data.userService.getCommonFriends(BenchData.HUB, BenchData.OTHER_HUB);
+    }
+
+    // 5000 друзей по ~10 своих у каждого: ~50 тысяч кандидатов на подсчёт
+    @Benchmark
+    public long[] friendSuggestionsForHub() {
+        return data.friendGraph.suggestions(BenchData.HUB, 10);
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestionsForHub() {
+        return data.userService.getFriendSuggestions(BenchData.HUB, 10);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.services.DatasetExporter;
+import ru.yandex.practicum.filmorate.storage.export.ExportDataset;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Выгрузка таблиц для аналитики: films, film_genres, film_likes, users, friendships.
+ * Прерванную выгрузку продолжают с after = ключ последней полученной строки: id для films и users,
+ * два значения через запятую для связующих таблиц (after=12,7 для film_likes — film_id,user_id).
+ * Ответ сжимается на лету, если Accept-Encoding допускает gzip (gzip;q=0 — отказ от него).
+ */
+@Validated
+@RestController
+@RequestMapping("/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final DatasetExporter exporter;
+
+    @GetMapping("/{dataset}")
+    public void export(@PathVariable String dataset,
+                       @RequestParam(defaultValue = "ndjson") String format,
+                       @RequestParam(required = false) String after,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        // ошибки в наборе и формате — до начала ответа, пока ещё можно отдать 404/400
+        ExportDataset exported = exporter.dataset(dataset);
+        DatasetExporter.Format exportFormat = DatasetExporter.Format.of(format);
+        long[] cursor = exporter.cursor(exported, after);
+
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try (OutputStream out = gzip
+                ? DatasetExporter.gzip(response.getOutputStream())
+                : response.getOutputStream()) {
+            exporter.export(exported, exportFormat, cursor, out);
+        }
+    }
+
+    /**
+     * gzip допустим, если он указан с ненулевым q или не указан, но есть «*» с ненулевым q (RFC 9110, 12.5.3).
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].strip().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) continue;
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].strip();
+                if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).strip());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("*")) {
+                any = q;
+            } else {
+                gzip = q;
+            }
+        }
+        if (gzip != null) return gzip > 0;
+        return any != null && any > 0;
+    }
+}
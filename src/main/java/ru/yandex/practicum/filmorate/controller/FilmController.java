@@ -1,16 +1,41 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.services.FilmBulkImporter;
 import ru.yandex.practicum.filmorate.services.FilmService;
+import ru.yandex.practicum.filmorate.services.PopularFilms;
+import ru.yandex.practicum.filmorate.services.PopularQuery;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -19,7 +44,15 @@ import java.util.Collection;
 @RequestMapping("/films")
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_POPULAR = 100;
+    private static final String NDJSON = "application/x-ndjson";
+
     private final FilmService filmService;
+    private final FilmBulkImporter bulkImporter;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -27,6 +60,28 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    /**
+     * Пакетная загрузка: тело — NDJSON, по фильму на строку; ответ — NDJSON с результатом
+     * каждой строки ({"line":1,"id":10} или {"line":2,"error":"..."}), отдаётся по мере записи порций.
+     * Слишком длинная строка до первой отданной порции — 400.
+     */
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    public void bulkCreate(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // поток ответа не закрываем: закрытие зафиксировало бы ответ, и ошибку уже нельзя было бы отдать 400
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            bulkImporter.importNdjson(in, out);
+        } catch (ValidationException e) {
+            // ответ ещё не начат: сбрасываем тип NDJSON, чтобы обработчик ошибок отдал JSON
+            response.reset();
+            throw e;
+        }
+        out.flush();
+    }
+
     @PutMapping
     public Film update(@RequestBody Film newFilm) {
         return filmService.update(newFilm);
@@ -38,12 +93,65 @@ public class FilmController {
     }
 
     @GetMapping
-    public Collection<Film> findAll() {
+    public Collection<Film> findAll(WebRequest request) {
+        Version version = filmService.getCatalogVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
         return filmService.findAll();
     }
 
+    /**
+     * Весь каталог потоком: фильмы пишутся в ответ по мере чтения из БД,
+     * память не зависит от размера каталога.
+     */
+    @GetMapping(params = "stream=true")
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(Film.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            gen.writeStartArray();
+            filmService.streamAll(film -> {
+                try {
+                    writer.writeValue(gen, film);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            gen.writeEndArray();
+        }
+    }
+
+    @GetMapping(params = "limit")
+    public Page<Film> findPage(@RequestParam(defaultValue = "0")
+                               @PositiveOrZero(message = "after не может быть отрицательным")
+                               long after,
+                               @RequestParam
+                               @Positive(message = "limit должен быть положительным")
+                               @Max(value = MAX_PAGE_SIZE, message = "limit не может быть больше " + MAX_PAGE_SIZE)
+                               int limit,
+                               WebRequest request) {
+        Version version = filmService.getCatalogVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
+        return filmService.findPage(after, limit);
+    }
+
+    /**
+     * Если у клиента актуальная версия (If-None-Match / If-Modified-Since), отвечает 304
+     * после одного запроса версии — фильм не читается и не сериализуется.
+     * Версия берётся до данных: при гонке с записью клиент получит новые данные со старой
+     * версией и перечитает их, но не закеширует старые данные под новой версией.
+     */
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable @Positive Long id) {
+    public Film getFilmById(@PathVariable @Positive Long id, WebRequest request) {
+        Version version = filmService.getFilmVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
         return filmService.getFilmById(id);
     }
 
@@ -59,12 +167,44 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable @Positive Long id,
+                                      @RequestParam(defaultValue = "10")
+                                      @Positive(message = "count должен быть положительным")
+                                      @Max(value = MAX_RECOMMENDATIONS, message = "count не может быть больше "
+                                              + MAX_RECOMMENDATIONS)
+                                      int count) {
+        return filmService.getSimilarFilms(id, count);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam @NotBlank(message = "q не должен быть пустым") String q,
+                             @RequestParam(defaultValue = "title,description") String by,
+                             @RequestParam(defaultValue = "10")
+                             @Positive(message = "limit должен быть положительным")
+                             @Max(value = MAX_SEARCH_RESULTS, message = "limit не может быть больше "
+                                     + MAX_SEARCH_RESULTS)
+                             int limit) {
+        return filmService.searchFilms(q, by, limit);
+    }
+
     @GetMapping(value = "/popular", params = "count")
     public Collection<Film> getTopFilms(@RequestParam(defaultValue = "10")
                                         @NotNull(message = "count должен быть указан")
                                         @Positive(message = "count должен быть положительным")
-                                        int count) {
-        return filmService.getTopFilms(count);
+                                        @Max(value = MAX_POPULAR, message = "count не может быть больше "
+                                                + MAX_POPULAR)
+                                        int count,
+                                        @RequestParam(required = false) Long genreId,
+                                        @RequestParam(required = false) Integer year,
+                                        WebRequest request) {
+        // версия — та, при которой собран закешированный результат, а не текущая
+        PopularFilms popular = filmService.getPopularFilms(new PopularQuery(count, genreId, year));
+        Version version = popular.version();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
+        return popular.films();
     }
 
 
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Version;
 import ru.yandex.practicum.filmorate.services.FilmService;
 
 import java.util.Collection;
@@ -16,12 +18,20 @@ public class MpaController {
     private final FilmService filmService;
 
     @GetMapping
-    public Collection<Mpa> findAll() {
+    public Collection<Mpa> findAll(WebRequest request) {
+        Version version = filmService.getReferenceDataVersion();
+        if (request.checkNotModified(version.etag())) {
+            return null;
+        }
         return filmService.getAllMpa();
     }
 
     @GetMapping("/{id}")
-    public Mpa getById(@PathVariable @Positive Long id) {
+    public Mpa getById(@PathVariable @Positive Long id, WebRequest request) {
+        Version version = filmService.getReferenceDataVersion();
+        if (request.checkNotModified(version.etag())) {
+            return null;
+        }
         return filmService.getMpa(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.services.FilmService;
+
+import java.util.Map;
+
+/**
+ * POST /actuator/referencedata — перечитать справочники жанров и MPA из БД без перезапуска,
+ * после их правки в обход приложения (миграцией с другого экземпляра или вручную).
+ * Как и остальные служебные эндпоинты, открыт через management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "referencedata")
+@RequiredArgsConstructor
+public class ReferenceDataEndpoint {
+
+    private final FilmService filmService;
+
+    @WriteOperation
+    public Map<String, Integer> refresh() {
+        filmService.refreshReferenceData();
+        return Map.of("genres", filmService.getAllGener().size(), "mpa", filmService.getAllMpa().size());
+    }
+}
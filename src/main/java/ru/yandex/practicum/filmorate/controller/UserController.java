@@ -1,12 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.services.FilmService;
 import ru.yandex.practicum.filmorate.services.UserService;
 
 import java.util.Collection;
@@ -19,7 +26,11 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_RECOMMENDATIONS = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -40,12 +51,39 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> findAll() {
+    public Collection<User> findAll(WebRequest request) {
+        Version version = userService.getListVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
         return userService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public Page<User> findPage(@RequestParam(defaultValue = "0")
+                               @PositiveOrZero(message = "after не может быть отрицательным")
+                               long after,
+                               @RequestParam
+                               @Positive(message = "limit должен быть положительным")
+                               @Max(value = MAX_PAGE_SIZE, message = "limit не может быть больше " + MAX_PAGE_SIZE)
+                               int limit,
+                               WebRequest request) {
+        Version version = userService.getListVersion();
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
+        return userService.findPage(after, limit);
+    }
+
+    /**
+     * Условный GET, как у фильмов: при актуальной версии клиента — 304 без чтения пользователя и друзей.
+     */
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable Long id) {
+    public User getUserById(@PathVariable Long id, WebRequest request) {
+        Version version = userService.getUserVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
@@ -76,6 +114,30 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable
+                                           @Positive(message = "id пользователя должен быть > 0")
+                                           Long id,
+                                           @RequestParam(defaultValue = "10")
+                                           @Positive(message = "limit должен быть положительным")
+                                           @Max(value = MAX_RECOMMENDATIONS, message = "limit не может быть больше "
+                                                   + MAX_RECOMMENDATIONS)
+                                           int limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable
+                                         @Positive(message = "id пользователя должен быть > 0")
+                                         Long id,
+                                         @RequestParam(defaultValue = "10")
+                                         @Positive(message = "count должен быть положительным")
+                                         @Max(value = MAX_RECOMMENDATIONS, message = "count не может быть больше "
+                                                 + MAX_RECOMMENDATIONS)
+                                         int count) {
+        return filmService.getRecommendations(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable
                                        @Positive(message = "id пользователя должен быть > 0")
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.exceptions;
 
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,16 +10,21 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exceptions.dto.ErrorResponse;
 import ru.yandex.practicum.filmorate.exceptions.dto.Violation;
+import ru.yandex.practicum.filmorate.metrics.DomainMetrics;
 
 import java.time.Instant;
 import java.util.List;
 
 @Slf4j
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final DomainMetrics metrics;
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException ex, WebRequest req) {
+        metrics.error(ex);
         List<Violation> violations = ex.getConstraintViolations().stream()
                 .map(v -> new Violation(v.getPropertyPath() == null ? "" : v.getPropertyPath().toString(),
                         v.getMessage()))
@@ -37,6 +43,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException ex, WebRequest req) {
+        metrics.error(ex);
         var body = new ErrorResponse(
                 Instant.now().toString(),
                 HttpStatus.NOT_FOUND.value(),
@@ -50,6 +57,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<ErrorResponse> handleValidation(ValidationException ex, WebRequest req) {
+        metrics.error(ex);
         var body = new ErrorResponse(
                 Instant.now().toString(),
                 HttpStatus.BAD_REQUEST.value(),
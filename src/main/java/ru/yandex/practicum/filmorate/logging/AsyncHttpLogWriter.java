@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.Precorrelation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Запись журнала запросов Logbook в отдельном потоке.
+ * <p>
+ * Поток запроса только кладёт готовое сообщение в ограниченную очередь. Если очередь полна
+ * (логгер не успевает за нагрузкой), сообщение отбрасывается и учитывается в счётчике
+ * filmorate.http.log.dropped — запрос не ждёт диска и не копит память.
+ */
+public class AsyncHttpLogWriter implements HttpLogWriter, DisposableBean {
+
+    // тот же логгер, что у стандартного писателя Logbook: уровень по-прежнему включает журнал
+    private static final Logger log = LoggerFactory.getLogger(Logbook.class);
+
+    private final BlockingQueue<String> queue;
+    private final Consumer<String> output;
+    private final Counter dropped;
+    private final Thread worker;
+
+    public AsyncHttpLogWriter(int capacity, MeterRegistry registry) {
+        this(capacity, registry, log::trace);
+    }
+
+    public AsyncHttpLogWriter(int capacity, MeterRegistry registry, Consumer<String> output) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.output = output;
+        this.dropped = Counter.builder("filmorate.http.log.dropped")
+                .description("Сообщения журнала запросов, отброшенные при переполнении очереди")
+                .register(registry);
+        Gauge.builder("filmorate.http.log.queue", queue, BlockingQueue::size)
+                .description("Сообщения журнала запросов, ожидающие записи")
+                .register(registry);
+        this.worker = new Thread(this::drain, "http-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return log.isTraceEnabled();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        enqueue(request);
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        enqueue(response);
+    }
+
+    private void enqueue(String message) {
+        if (!queue.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                write(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // остановка: дописываем то, что уже попало в очередь
+            for (String message; (message = queue.poll()) != null; ) {
+                write(message);
+            }
+        }
+    }
+
+    private void write(String message) {
+        try {
+            output.accept(message);
+        } catch (RuntimeException e) {
+            // сбой записи одного сообщения не должен останавливать поток журнала
+            log.warn("Не удалось записать сообщение журнала запросов", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        worker.interrupt();
+        worker.join(1000);
+    }
+}
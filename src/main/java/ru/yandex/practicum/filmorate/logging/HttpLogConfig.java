@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.function.Predicate;
+
+/**
+ * Журнал запросов Logbook: выборка и асинхронная запись вместо стандартных условия и писателя.
+ * Обрезка тел — logbook.write.max-body-size, исключённые пути — logbook.predicate.exclude.
+ */
+@Configuration(proxyBeanMethods = false)
+public class HttpLogConfig {
+
+    // имя совпадает со стандартным бином Logbook, который этот заменяет
+    @Bean
+    public Predicate<HttpRequest> requestCondition(@Value("${filmorate.http-log.sample-rate:1.0}") double sampleRate) {
+        return new SampledRequestCondition(sampleRate);
+    }
+
+    @Bean
+    public AsyncHttpLogWriter httpLogWriter(@Value("${filmorate.http-log.queue-capacity:10000}") int capacity,
+                                            MeterRegistry registry) {
+        return new AsyncHttpLogWriter(capacity, registry);
+    }
+}
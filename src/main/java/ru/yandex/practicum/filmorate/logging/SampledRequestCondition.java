@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Какие запросы попадают в журнал Logbook: только доля sampleRate, потоковые выгрузки — никогда.
+ * <p>
+ * Решение принимается до чтения тела, поэтому у невыбранных запросов тело не буферизуется.
+ * Потоковый ответ пришлось бы целиком копить в памяти ради журнала — этим он и перестал бы быть потоковым.
+ */
+public class SampledRequestCondition implements Predicate<HttpRequest> {
+
+    private final double sampleRate;
+
+    public SampledRequestCondition(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Доля журналируемых запросов должна быть от 0 до 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        return !isStreaming(request.getQuery())
+                && (sampleRate == 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static boolean isStreaming(String query) {
+        if (query == null || query.isEmpty()) return false;
+        for (String param : query.split("&")) {
+            if (param.equals("stream=true")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Счётчики доменных операций: лайки, дружба и ошибки, отданные клиенту.
+ */
+@Component
+public class DomainMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
+    private final Counter friendsAdded;
+    private final Counter friendsRemoved;
+
+    public DomainMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.likesAdded = counter("filmorate.likes", "add", "Поставленные и снятые лайки");
+        this.likesRemoved = counter("filmorate.likes", "remove", "Поставленные и снятые лайки");
+        this.friendsAdded = counter("filmorate.friends", "add", "Добавления и удаления друзей");
+        this.friendsRemoved = counter("filmorate.friends", "remove", "Добавления и удаления друзей");
+    }
+
+    public void likeAdded() {
+        likesAdded.increment();
+    }
+
+    public void likeRemoved() {
+        likesRemoved.increment();
+    }
+
+    public void friendAdded() {
+        friendsAdded.increment();
+    }
+
+    public void friendRemoved() {
+        friendsRemoved.increment();
+    }
+
+    public void error(Exception ex) {
+        registry.counter("filmorate.errors", "type", ex.getClass().getSimpleName()).increment();
+    }
+
+    private Counter counter(String name, String operation, String description) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Время и число строк каждого SQL-запроса в разрезе его имени.
+ * Имя берётся из комментария в начале текста запроса: «/* film.findById *&#47; SELECT ...».
+ * Комментарий переживает раскрытие IN (:ids) и виден также в статистике самой БД.
+ * <p>
+ * Замер — на уровне операции JdbcTemplate: время от получения соединения до закрытия оператора,
+ * для SELECT — вместе с чтением строк. ResultSet не оборачивается: строки SELECT считаются по размеру
+ * списка RowMapper и по вызовам RowCallbackHandler, изменённые — по счётчикам update/batchUpdate.
+ * У ResultSetExtractor своего вида число строк неизвестно и записывается как 0.
+ * Вне шаблона (ConnectionCallback, StatementCallback) запросы не замеряются.
+ */
+public class MeteredJdbcTemplate extends JdbcTemplate {
+
+    static final String UNNAMED = "unnamed";
+
+    private final Supplier<MeterRegistry> registry;
+    private final Map<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public MeteredJdbcTemplate(DataSource dataSource, Supplier<MeterRegistry> registry) {
+        super(dataSource);
+        this.registry = registry;
+    }
+
+    static String nameOf(String sql) {
+        if (sql == null) return UNNAMED;
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        if (!sql.startsWith("/*", start)) return UNNAMED;
+        int end = sql.indexOf("*/", start + 2);
+        return end < 0 ? UNNAMED : sql.substring(start + 2, end).trim();
+    }
+
+    //QUERIES
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+        long start = System.nanoTime();
+        T result = super.query(psc, pss, rse);
+        meters(sqlOf(psc)).record(start, rowsRead(rse, result));
+        return result;
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) {
+        long start = System.nanoTime();
+        T result = super.query(sql, rse);
+        meters(sql).record(start, rowsRead(rse, result));
+        return result;
+    }
+
+    // перегрузки с RowCallbackHandler сходятся в эти три и дальше в query(..., ResultSetExtractor)
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch) {
+        query(sql, new CountingRowCallback(rch));
+    }
+
+    @Override
+    public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+        query(psc, null, new CountingRowCallback(rch));
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+        query(sql, pss, new CountingRowCallback(rch));
+    }
+
+    //UPDATES
+
+    @Override
+    public int update(String sql) {
+        long start = System.nanoTime();
+        int rows = super.update(sql);
+        meters(sql).record(start, rows);
+        return rows;
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) {
+        long start = System.nanoTime();
+        int rows = super.update(psc, pss);
+        meters(sqlOf(psc)).record(start, rows);
+        return rows;
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+        long start = System.nanoTime();
+        int rows = super.update(psc, generatedKeyHolder);
+        meters(sqlOf(psc)).record(start, rows);
+        return rows;
+    }
+
+    // batchUpdate и собственные PreparedStatementCallback идут через эти два метода
+
+    @Override
+    public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+        long start = System.nanoTime();
+        T result = super.execute(sql, action);
+        meters(sql).record(start, rowsChanged(result));
+        return result;
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+        long start = System.nanoTime();
+        T result = super.execute(psc, action);
+        meters(sqlOf(psc)).record(start, rowsChanged(result));
+        return result;
+    }
+
+    private StatementMeters meters(String sql) {
+        return meters.computeIfAbsent(nameOf(sql), name -> new StatementMeters(
+                Timer.builder("filmorate.sql")
+                        .description("Время выполнения SQL-запроса")
+                        .tag("statement", name)
+                        .register(registry.get()),
+                DistributionSummary.builder("filmorate.sql.rows")
+                        .description("Строк прочитано или изменено запросом")
+                        .tag("statement", name)
+                        .register(registry.get())));
+    }
+
+    private static String sqlOf(PreparedStatementCreator psc) {
+        return psc instanceof SqlProvider provider ? provider.getSql() : null;
+    }
+
+    private static long rowsRead(ResultSetExtractor<?> rse, Object result) {
+        if (rse instanceof CountingRowCallback counting) return counting.rows;
+        return result instanceof Collection<?> rows ? rows.size() : 0;
+    }
+
+    private static long rowsChanged(Object result) {
+        if (result instanceof Integer n) return Math.max(n, 0);
+        long total = 0;
+        if (result instanceof int[] batch) {
+            for (int n : batch) total += Math.max(n, 0);
+        } else if (result instanceof int[][] batches) {
+            for (int[] batch : batches) {
+                for (int n : batch) total += Math.max(n, 0);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * RowCallbackHandler со счётчиком строк — вместо внутреннего извлекателя JdbcTemplate.
+     */
+    private static final class CountingRowCallback implements ResultSetExtractor<Object> {
+
+        private final RowCallbackHandler rch;
+        private long rows;
+
+        CountingRowCallback(RowCallbackHandler rch) {
+            this.rch = rch;
+        }
+
+        @Override
+        public Object extractData(ResultSet rs) throws SQLException {
+            while (rs.next()) {
+                rch.processRow(rs);
+                rows++;
+            }
+            return null;
+        }
+    }
+
+    private record StatementMeters(Timer timer, DistributionSummary rows) {
+
+        void record(long start, long rowCount) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            rows.record(rowCount);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    /**
+     * JdbcTemplate приложения с замером SQL-запросов; заменяет шаблон из автоконфигурации,
+     * поэтому настройки spring.jdbc.template.* переносятся сюда. Реестр метрик берётся лениво —
+     * при первом запросе, чтобы не создавать его раньше пула.
+     */
+    @Bean
+    MeteredJdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties properties,
+                                     ObjectProvider<MeterRegistry> registry) {
+        MeteredJdbcTemplate template = new MeteredJdbcTemplate(dataSource, registry::getObject);
+        JdbcProperties.Template settings = properties.getTemplate();
+        template.setFetchSize(settings.getFetchSize());
+        template.setMaxRows(settings.getMaxRows());
+        if (settings.getQueryTimeout() != null) {
+            template.setQueryTimeout((int) settings.getQueryTimeout().getSeconds());
+        }
+        return template;
+    }
+}
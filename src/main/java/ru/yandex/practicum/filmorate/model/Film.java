@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.*;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -21,5 +20,12 @@ public class Film {
     private Integer duration;
     private Set<Genre> genres = new LinkedHashSet<>();
     private Mpa mpa;
-    private Set<Long> likes = new HashSet<>();
+    // в логах — только число лайков: у популярного фильма множество занимает мегабайты
+    @ToString.Exclude
+    private LongHashSet likes = new LongHashSet();
+
+    @ToString.Include(name = "likes")
+    private int likeCount() {
+        return likes.size();
+    }
 }
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset-пагинации. nextCursor — id последнего элемента страницы
+ * (передаётся как after в следующий запрос) или null, если страница последняя.
+ */
+public record Page<T>(List<T> items, Long nextCursor) {
+
+    /**
+     * Собирает страницу из выборки размером до limit + 1:
+     * лишняя строка означает, что за страницей есть продолжение.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Long> idOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idOf.apply(items.get(limit - 1)));
+    }
+}
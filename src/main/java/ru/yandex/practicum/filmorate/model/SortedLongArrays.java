@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Arrays;
+
+/**
+ * Отсортированные массивы id как неизменяемые множества: изменение возвращает новый массив,
+ * а если менять нечего — тот же экземпляр, так что по == видно, было ли изменение.
+ */
+public final class SortedLongArrays {
+
+    private SortedLongArrays() {
+    }
+
+    public static long[] with(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) return ids;
+
+        int at = -pos - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, at);
+        updated[at] = id;
+        System.arraycopy(ids, at, updated, at + 1, ids.length - at);
+        return updated;
+    }
+
+    public static long[] without(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) return ids;
+
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        System.arraycopy(ids, pos + 1, updated, pos, ids.length - pos - 1);
+        return updated;
+    }
+}
@@ -3,8 +3,6 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.*;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Getter
 @Setter
@@ -16,6 +14,18 @@ public class User {
     private String login;
     private String name;
     private LocalDate birthday;
-    private final Set<Long> friends = new HashSet<>();
-    private final Set<Long> likes = new HashSet<>();
+    @ToString.Exclude
+    private final LongHashSet friends = new LongHashSet();
+    @ToString.Exclude
+    private final LongHashSet likes = new LongHashSet();
+
+    @ToString.Include(name = "friends")
+    private int friendCount() {
+        return friends.size();
+    }
+
+    @ToString.Include(name = "likes")
+    private int likeCount() {
+        return likes.size();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Версия ресурса для условного GET: значение ETag и время последнего изменения (может быть неизвестно).
+ */
+public record Version(String etag, Instant lastModified) {
+
+    /**
+     * Версия записи по updated_at.
+     */
+    public static Version of(String kind, long key, Instant modified) {
+        long micros = modified == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, modified);
+        return new Version('"' + kind + '-' + key + '-' + Long.toString(micros, 36) + '"', modified);
+    }
+
+    /**
+     * Версия коллекции по счётчику изменений с момента started — без Last-Modified.
+     */
+    public static Version ofChanges(String kind, String started, long changes) {
+        return new Version('"' + kind + '-' + started + '-' + Long.toString(changes, 36) + '"', null);
+    }
+
+    /**
+     * Версия по содержимому — для справочников, которые целиком лежат в памяти.
+     */
+    public static Version ofContent(String kind, int hash) {
+        return new Version('"' + kind + '-' + Integer.toHexString(hash) + '"', null);
+    }
+
+    /**
+     * Время изменения в миллисекундах для Last-Modified; -1, если неизвестно.
+     */
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+}
@@ -0,0 +1,388 @@
+package ru.yandex.practicum.filmorate.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Индекс совместных лайков для «похожих фильмов» и персональных рекомендаций.
+ * <p>
+ * Для каждого фильма хранятся до neighbors соседей по косинусной близости множеств лайкнувших:
+ * co(a, b) / sqrt(|a| * |b|). При старте соседи всех фильмов считаются параллельно в ForkJoinPool.
+ * Лайк пересчитывает соседей самого фильма целиком (изменилось |a|) и близость к нему у остальных
+ * фильмов этого пользователя; близость к фильму у прочих его соседей не пересчитывается и слегка
+ * завышена до следующего пересчёта их списков.
+ * <p>
+ * Поток запроса только правит списки лайкнувших и ставит фильм в очередь пересчёта: соседи
+ * популярного фильма стоят суммы лайков всех его зрителей и считаются одним фоновым потоком.
+ * Очередь склеивает повторы — сколько бы лайков ни получил фильм, пока ждал, пересчёт будет один.
+ * Удалённый фильм отбрасывается при чтении, пока фоновый поток не пересчитает все списки, где он был.
+ * <p>
+ * Чтение без блокировок: списки — неизменяемые массивы, подменяемые целиком; запись последовательна.
+ */
+@Slf4j
+@Component
+public class CoLikeIndex implements DisposableBean {
+
+    private static final long[] NONE = new long[0];
+
+    private final FilmStorage filmStorage;
+    private final int neighborsPerFilm;
+    private final int buildParallelism;
+    private final Executor refreshExecutor;
+    private volatile State state = new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+            new ConcurrentHashMap<>());
+
+    // очередь пересчёта: фильм -> фильмы, у которых обновить близость к нему; защищена самой картой
+    private final Map<Long, Set<Long>> pending = new LinkedHashMap<>();
+    private final Set<Long> pendingDeletes = new HashSet<>();
+    private boolean draining;
+    // удалённые фильмы, ещё не вычищенные из чужих списков соседей
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CoLikeIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                       @Value("${filmorate.recommendations.neighbors:20}") int neighborsPerFilm,
+                       // 0 — по числу ядер
+                       @Value("${filmorate.recommendations.build-parallelism:0}") int buildParallelism,
+                       // false — пересчёт в потоке события, чтобы результат был виден сразу (тесты)
+                       @Value("${filmorate.recommendations.async-refresh:true}") boolean asyncRefresh) {
+        this(filmStorage, neighborsPerFilm, buildParallelism, asyncRefresh ? refreshThread() : Runnable::run);
+    }
+
+    /**
+     * Без Spring пересчёт по событию выполняется синхронно.
+     */
+    public CoLikeIndex(FilmStorage filmStorage, int neighborsPerFilm, int buildParallelism) {
+        this(filmStorage, neighborsPerFilm, buildParallelism, Runnable::run);
+    }
+
+    public CoLikeIndex(FilmStorage filmStorage, int neighborsPerFilm, int buildParallelism, Executor refreshExecutor) {
+        this.filmStorage = filmStorage;
+        this.neighborsPerFilm = neighborsPerFilm;
+        this.buildParallelism = buildParallelism > 0 ? buildParallelism : Runtime.getRuntime().availableProcessors();
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Перечитывает лайки и пересчитывает соседей всех фильмов; чтения до подмены видят прежний индекс.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        State built = new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        Map<Long, Growable> byUser = new HashMap<>();
+        Growable filmLikers = new Growable();
+        long[] current = {0};
+        // лайки идут по возрастанию (film_id, user_id): лайкнувшие фильм приходят подряд и уже отсортированы,
+        // фильмы каждого пользователя — тоже по возрастанию
+        filmStorage.forEachLike((filmId, userId) -> {
+            if (filmId != current[0]) {
+                if (filmLikers.size > 0) built.likers.put(current[0], filmLikers.drain());
+                current[0] = filmId;
+            }
+            filmLikers.add(userId);
+            byUser.computeIfAbsent(userId, id -> new Growable()).add(filmId);
+        });
+        if (filmLikers.size > 0) built.likers.put(current[0], filmLikers.drain());
+        byUser.forEach((userId, films) -> built.liked.put(userId, films.drain()));
+
+        long[] films = built.likers.keySet().stream().mapToLong(Long::longValue).toArray();
+        ForkJoinPool pool = new ForkJoinPool(buildParallelism);
+        try {
+            pool.submit(() -> Arrays.stream(films).parallel()
+                    .forEach(filmId -> built.neighbors.put(filmId, neighborsOf(built, filmId)))).join();
+        } finally {
+            pool.shutdown();
+        }
+        state = built;
+        log.info("Индекс совместных лайков пересобран: {} фильмов, {} пользователей за {} мс ({} потоков)",
+                films.length, built.liked.size(), (System.nanoTime() - started) / 1_000_000, buildParallelism);
+    }
+
+    /**
+     * Похожие фильмы по убыванию близости.
+     */
+    public long[] similar(long filmId, int count) {
+        Neighbors neighbors = state.neighbors.get(filmId);
+        if (neighbors == null) return NONE;
+        long[] result = new long[Math.min(count, neighbors.ids.length)];
+        int size = 0;
+        for (int i = 0; i < neighbors.ids.length && size < result.length; i++) {
+            if (!deleted.contains(neighbors.ids[i])) result[size++] = neighbors.ids[i];
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Рекомендации: соседи лайкнутых пользователем фильмов, кроме уже лайкнутых,
+     * по сумме близостей к ним.
+     */
+    public long[] recommendations(long userId, int count) {
+        State current = state;
+        long[] own = current.liked.getOrDefault(userId, NONE);
+        if (own.length == 0) return NONE;
+
+        LongScoreMap scores = new LongScoreMap(own.length * neighborsPerFilm);
+        for (long filmId : own) {
+            Neighbors neighbors = current.neighbors.get(filmId);
+            if (neighbors == null) continue;
+            for (int i = 0; i < neighbors.ids.length; i++) {
+                long other = neighbors.ids[i];
+                if (Arrays.binarySearch(own, other) < 0 && !deleted.contains(other)) {
+                    scores.add(other, neighbors.scores[i]);
+                }
+            }
+        }
+        TopK top = new TopK(count);
+        scores.forEach(top::offer);
+        return top.sortedIds();
+    }
+
+    /**
+     * Правит списки лайкнувших и ставит затронутые фильмы в очередь пересчёта соседей.
+     */
+    @EventListener
+    public void onLikeEvent(LikeEvent event) {
+        synchronized (this) {
+            State current = state;
+            switch (event.type()) {
+                case ADDED, REMOVED -> {
+                    boolean added = event.type() == LikeEvent.Type.ADDED;
+                    update(current.likers, event.filmId(), event.userId(), added);
+                    update(current.liked, event.userId(), event.filmId(), added);
+                    enqueue(event.filmId(), current.liked.getOrDefault(event.userId(), NONE));
+                }
+                case FILM_DELETED -> {
+                    long filmId = event.filmId();
+                    deleted.add(filmId);
+                    for (long userId : current.likers.getOrDefault(filmId, NONE)) {
+                        update(current.liked, userId, filmId, false);
+                    }
+                    current.likers.remove(filmId);
+                    synchronized (pending) {
+                        pendingDeletes.add(filmId);
+                    }
+                }
+                case USER_DELETED -> {
+                    long[] films = current.liked.getOrDefault(event.userId(), NONE);
+                    for (long filmId : films) {
+                        update(current.likers, filmId, event.userId(), false);
+                    }
+                    current.liked.remove(event.userId());
+                    // у каждого его фильма изменилось число лайков и пересечения друг с другом
+                    for (long filmId : films) {
+                        enqueue(filmId, NONE);
+                    }
+                }
+            }
+        }
+        schedule();
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    private void enqueue(long filmId, long[] userFilms) {
+        synchronized (pending) {
+            Set<Long> others = pending.computeIfAbsent(filmId, id -> new HashSet<>());
+            for (long other : userFilms) {
+                if (other != filmId) others.add(other);
+            }
+        }
+    }
+
+    private void schedule() {
+        synchronized (pending) {
+            if (draining || pending.isEmpty() && pendingDeletes.isEmpty()) return;
+            draining = true;
+        }
+        try {
+            refreshExecutor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // приложение останавливается
+            synchronized (pending) {
+                draining = false;
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Map<Long, Set<Long>> films;
+            Set<Long> removed;
+            synchronized (pending) {
+                if (pending.isEmpty() && pendingDeletes.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                films = new LinkedHashMap<>(pending);
+                removed = new HashSet<>(pendingDeletes);
+                pending.clear();
+                pendingDeletes.clear();
+            }
+            try {
+                State current = state;
+                if (!removed.isEmpty()) {
+                    // списки соседей несимметричны: удалённый фильм ищется во всех, а не только в своих соседях
+                    removed.forEach(current.neighbors::remove);
+                    current.neighbors.forEach((id, list) -> {
+                        if (list.containsAny(removed)) films.putIfAbsent(id, new HashSet<>());
+                    });
+                }
+                films.forEach((filmId, others) -> refresh(current, filmId, others));
+            } catch (RuntimeException e) {
+                log.error("Не удалось пересчитать соседей фильмов {}", films.keySet(), e);
+            } finally {
+                deleted.removeAll(removed);
+            }
+        }
+    }
+
+    // соседи filmId пересчитываются целиком, у остальных фильмов пользователя — только близость к filmId
+    private void refresh(State current, long filmId, Set<Long> userFilms) {
+        if (deleted.contains(filmId)) return;
+        current.neighbors.put(filmId, neighborsOf(current, filmId));
+        long[] filmLikers = current.likers.getOrDefault(filmId, NONE);
+        for (long other : userFilms) {
+            if (deleted.contains(other)) continue;
+            double similarity = cosine(filmLikers, current.likers.getOrDefault(other, NONE));
+            current.neighbors.compute(other, (id, list) -> (list == null ? Neighbors.EMPTY : list)
+                    .with(filmId, similarity, neighborsPerFilm));
+        }
+    }
+
+    private Neighbors neighborsOf(State current, long filmId) {
+        long[] filmLikers = current.likers.getOrDefault(filmId, NONE);
+        if (filmLikers.length == 0) return Neighbors.EMPTY;
+
+        LongScoreMap coLikes = new LongScoreMap(filmLikers.length * 4);
+        for (long userId : filmLikers) {
+            for (long other : current.liked.getOrDefault(userId, NONE)) {
+                if (other != filmId) coLikes.add(other, 1);
+            }
+        }
+        TopK top = new TopK(neighborsPerFilm);
+        double size = filmLikers.length;
+        coLikes.forEach((other, co) ->
+                top.offer(other, co / Math.sqrt(size * current.likers.getOrDefault(other, NONE).length)));
+        long[] ids = new long[top.size()];
+        float[] scores = new float[top.size()];
+        top.drainSorted(ids, scores);
+        return new Neighbors(ids, scores);
+    }
+
+    private static double cosine(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) return 0;
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common / Math.sqrt((double) a.length * b.length);
+    }
+
+    // отсортированный массив заменяется копией с добавленным или удалённым id
+    private static void update(Map<Long, long[]> index, long key, long id, boolean add) {
+        index.compute(key, (k, ids) -> {
+            long[] current = ids == null ? NONE : ids;
+            int pos = Arrays.binarySearch(current, id);
+            if (add == pos >= 0) return ids;
+            long[] updated;
+            if (add) {
+                int at = -pos - 1;
+                updated = new long[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, at);
+                updated[at] = id;
+                System.arraycopy(current, at, updated, at + 1, current.length - at);
+            } else {
+                updated = new long[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, pos);
+                System.arraycopy(current, pos + 1, updated, pos, current.length - pos - 1);
+            }
+            return updated.length == 0 ? null : updated;
+        });
+    }
+
+    // likers: фильм -> кто лайкнул, liked: пользователь -> что лайкнул; массивы отсортированы
+    private record State(Map<Long, long[]> likers, Map<Long, long[]> liked, Map<Long, Neighbors> neighbors) {
+    }
+
+    // соседи по убыванию близости, при равенстве — по id
+    private record Neighbors(long[] ids, float[] scores) {
+        static final Neighbors EMPTY = new Neighbors(NONE, new float[0]);
+
+        boolean containsAny(Set<Long> filmIds) {
+            for (long id : ids) {
+                if (filmIds.contains(id)) return true;
+            }
+            return false;
+        }
+
+        // копия, где у filmId близость similarity (0 — убрать), не длиннее limit
+        Neighbors with(long filmId, double similarity, int limit) {
+            TopK top = new TopK(limit);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != filmId) top.offer(ids[i], scores[i]);
+            }
+            if (similarity > 0) top.offer(filmId, (float) similarity);
+            long[] newIds = new long[top.size()];
+            float[] newScores = new float[top.size()];
+            top.drainSorted(newIds, newScores);
+            return new Neighbors(newIds, newScores);
+        }
+    }
+
+    private static ExecutorService refreshThread() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("co-like-refresh-");
+        threadFactory.setDaemon(true);
+        return Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    private static final class Growable {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] drain() {
+            long[] result = Arrays.copyOf(values, size);
+            size = 0;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Version;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии каталога фильмов и списка пользователей для условного GET по всей коллекции — счётчики
+ * изменений в памяти: проверка версии не читает таблицу. Каталог меняется только вместе с FilmEvent,
+ * список пользователей — в UserService, который отмечает изменение сам.
+ * <p>
+ * Счётчик растёт после записи, а версия читается до данных (см. VersionClock). В ETag входит время
+ * запуска: после перезапуска счётчики снова начинаются с нуля, и старые ETag клиентов не совпадут
+ * с новыми. Last-Modified у коллекций нет — при секундной точности If-Modified-Since два изменения
+ * за одну секунду дали бы устаревший 304. Как и рейтинг с кешами, счётчики у каждого экземпляра свои.
+ */
+@Component
+public class CollectionVersions {
+
+    private final String started = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong filmChanges = new AtomicLong();
+    private final AtomicLong userChanges = new AtomicLong();
+
+    @EventListener
+    public void onFilmEvent(FilmEvent event) {
+        filmChanges.incrementAndGet();
+    }
+
+    public void usersChanged() {
+        userChanges.incrementAndGet();
+    }
+
+    public Version films() {
+        return Version.ofChanges("films", started, filmChanges.get());
+    }
+
+    public Version users() {
+        return Version.ofChanges("users", started, userChanges.get());
+    }
+}
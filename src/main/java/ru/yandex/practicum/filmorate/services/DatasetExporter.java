@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.storage.export.ExportDataset;
+import ru.yandex.practicum.filmorate.storage.export.ExportDbStorage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка таблиц в NDJSON или CSV прямо из курсора БД: строка пишется в поток сразу после
+ * чтения, поэтому память не зависит от объёма таблицы.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DatasetExporter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Неизвестный формат выгрузки: " + name + " (ndjson | csv)");
+            }
+        }
+    }
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private final ExportDbStorage exportStorage;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * gzip на лету с быстрым уровнем сжатия: на уровне по умолчанию сжатие в разы дороже
+     * самой выгрузки, а выигрыш в размере на однотипных строках невелик.
+     */
+    public static OutputStream gzip(OutputStream out) throws IOException {
+        return new FastGzipOutputStream(out);
+    }
+
+    public ExportDataset dataset(String name) {
+        return ExportDataset.byName(name)
+                .orElseThrow(() -> new NotFoundException("Неизвестный набор данных: " + name));
+    }
+
+    /**
+     * Курсор выгрузки: значения колонок ключа через запятую, например «12,7» для film_likes.
+     * Без курсора выгрузка начинается с начала таблицы.
+     */
+    public long[] cursor(ExportDataset dataset, String after) {
+        long[] cursor = new long[dataset.key().size()];
+        if (after == null) return cursor;
+        String[] values = after.split(",", -1);
+        if (values.length != cursor.length) {
+            throw new ValidationException("after для " + dataset.table() + " — значения "
+                    + String.join(",", dataset.key()) + " последней полученной строки");
+        }
+        for (int i = 0; i < values.length; i++) {
+            try {
+                cursor[i] = Long.parseLong(values[i].strip());
+            } catch (NumberFormatException e) {
+                throw new ValidationException("after — целые числа через запятую: " + after);
+            }
+            if (cursor[i] < 0) throw new ValidationException("after не может быть отрицательным");
+        }
+        return cursor;
+    }
+
+    /**
+     * Пишет строки набора с ключом больше after. Поток не закрывается — только сбрасывается.
+     *
+     * @return сколько строк выгружено
+     */
+    public long export(ExportDataset dataset, Format format, long[] after, OutputStream out) throws IOException {
+        long[] rows = new long[1];
+        try (RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out)) {
+            writer.header(dataset.columns());
+            exportStorage.export(dataset, after, row -> {
+                writer.accept(row);
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Выгрузка {} ({}) после {}: {} строк", dataset.table(), format, Arrays.toString(after), rows[0]);
+        return rows[0];
+    }
+
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, GZIP_BUFFER);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    private abstract static class RowWriter implements Consumer<Object[]>, AutoCloseable {
+
+        abstract void header(List<String> columns) throws IOException;
+
+        abstract void write(Object[] row) throws IOException;
+
+        @Override
+        public void accept(Object[] row) {
+            try {
+                write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public abstract void close() throws IOException;
+    }
+
+    private final class NdjsonWriter extends RowWriter {
+        private final JsonGenerator gen;
+        private List<String> columns;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            gen = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // без пробела-разделителя между объектами верхнего уровня — их разделяет перевод строки
+            gen.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        void header(List<String> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        void write(Object[] row) throws IOException {
+            gen.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                gen.writeFieldName(columns.get(i));
+                Object value = row[i];
+                if (value == null) {
+                    gen.writeNull();
+                } else if (value instanceof Number number) {
+                    gen.writeNumber(number.longValue());
+                } else {
+                    gen.writeString(value.toString());
+                }
+            }
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            gen.close();
+        }
+    }
+
+    // RFC 4180: поле в кавычках, если в нём есть разделитель, кавычка или перевод строки
+    private static final class CsvWriter extends RowWriter {
+        private final Writer out;
+
+        CsvWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        }
+
+        @Override
+        void header(List<String> columns) throws IOException {
+            write(columns.toArray());
+        }
+
+        @Override
+        void write(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) out.write(',');
+                if (row[i] != null) field(row[i].toString());
+            }
+            out.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.validation.FilmValidator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Загрузка фильмов из NDJSON: одна строка — один фильм, на каждую строку — строка результата
+ * с id созданного фильма или ошибкой. Строки проверяются правилами FilmValidator (справочники
+ * уже в памяти хранилища) и пишутся порциями по chunkSize: каждая порция — одна транзакция
+ * с пакетными вставками. В памяти держится не больше одной порции, результаты уходят клиенту
+ * после каждой. Лайки из входных данных игнорируются.
+ * <p>
+ * Строка длиннее maxLineLength символов не читается дальше предела: пока ответ не начат, загрузка
+ * отклоняется с ValidationException (400), а после первой отданной порции статус уже не изменить —
+ * последней строкой ответа идёт ошибка этой строки, и чтение прекращается.
+ */
+@Slf4j
+@Service
+public class FilmBulkImporter {
+
+    private final FilmStorage filmStorage;
+    private final FilmValidator validator;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final ApplicationEventPublisher events;
+    private final ObjectReader filmReader;
+    private final ObjectWriter resultWriter;
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    public FilmBulkImporter(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                            FilmValidator validator,
+                            PopularityLeaderboard leaderboard,
+                            FilmSearchIndex searchIndex,
+                            ApplicationEventPublisher events,
+                            ObjectMapper objectMapper,
+                            @Value("${filmorate.bulk.chunk-size:1000}") int chunkSize,
+                            @Value("${filmorate.bulk.max-line-length:65536}") int maxLineLength) {
+        this.filmStorage = filmStorage;
+        this.validator = validator;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
+        this.events = events;
+        this.filmReader = objectMapper.readerFor(Film.class);
+        // ответ пишется построчно в один поток — его нельзя закрывать после каждой строки
+        this.resultWriter = objectMapper.writerFor(LineResult.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Читает фильмы из in и пишет результаты по строкам в out в порядке строк. Пустые строки пропускаются.
+     *
+     * @return сколько фильмов создано
+     */
+    public int importNdjson(Reader in, Writer out) throws IOException {
+        LineReader lines = new LineReader(in, maxLineLength);
+        Chunk chunk = new Chunk(chunkSize);
+        int created = 0;
+        int lineNo = 0;
+        boolean responded = false;
+        String line;
+        while (true) {
+            try {
+                line = lines.readLine(lineNo + 1);
+            } catch (ValidationException e) {
+                if (!responded) throw e;
+                log.warn("Пакетная загрузка прервана на строке {}: {}", lineNo + 1, e.getMessage());
+                created += flush(chunk, out);
+                resultWriter.writeValue(out, new LineResult(lineNo + 1, null, e.getMessage()));
+                out.write('\n');
+                out.flush();
+                return created;
+            }
+            if (line == null) break;
+            lineNo++;
+            if (line.isBlank()) continue;
+            chunk.add(lineNo, line);
+            if (chunk.lines.size() == chunkSize) {
+                created += flush(chunk, out);
+                responded = true;
+            }
+        }
+        created += flush(chunk, out);
+        log.info("Пакетная загрузка: строк {}, создано фильмов {}", lineNo, created);
+        return created;
+    }
+
+    private int flush(Chunk chunk, Writer out) throws IOException {
+        String chunkError = null;
+        if (!chunk.films.isEmpty()) {
+            try {
+                filmStorage.createAll(chunk.films);
+            } catch (DataAccessException e) {
+                log.warn("Порция из {} фильмов не записана: {}", chunk.films.size(), e.getMessage());
+                chunkError = "Порция не записана: " + e.getMostSpecificCause().getMessage();
+            }
+        }
+        int created = chunkError == null ? chunk.films.size() : 0;
+        if (created > 0) {
+            for (Film film : chunk.films) {
+                leaderboard.add(film.getId(), 0);
+            }
+            searchIndex.putAll(chunk.films);
+            // одно событие на порцию вместо тысяч CREATED
+            events.publishEvent(FilmEvent.catalogChanged());
+        }
+
+        for (Line line : chunk.lines) {
+            LineResult result = line.film() == null ? new LineResult(line.number(), null, line.error())
+                    : chunkError != null ? new LineResult(line.number(), null, chunkError)
+                    : new LineResult(line.number(), line.film().getId(), null);
+            resultWriter.writeValue(out, result);
+            out.write('\n');
+        }
+        out.flush();
+        chunk.clear();
+        return created;
+    }
+
+    /**
+     * Результат строки: id созданного фильма или текст ошибки.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record LineResult(int line, Long id, String error) {
+    }
+
+    // строка входа: разобранный и проверенный фильм либо ошибка разбора/проверки
+    private record Line(int number, Film film, String error) {
+    }
+
+    /**
+     * Построчное чтение с пределом длины: как BufferedReader.readLine (\n, \r и \r\n), но строка
+     * длиннее maxLength не накапливается целиком — чтение обрывается на пределе.
+     */
+    private static final class LineReader {
+        private final Reader in;
+        private final int maxLength;
+        private final char[] buf = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int pos;
+        private int end;
+        // после \r следующий \n — часть того же перевода строки
+        private boolean skipLf;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Следующая строка без перевода строки; null в конце входа.
+         */
+        String readLine(int number) throws IOException {
+            line.setLength(0);
+            boolean started = false;
+            while (true) {
+                if (pos == end) {
+                    int read = in.read(buf);
+                    if (read < 0) return started ? line.toString() : null;
+                    pos = 0;
+                    end = read;
+                }
+                if (skipLf) {
+                    skipLf = false;
+                    if (buf[pos] == '\n') {
+                        pos++;
+                        continue;
+                    }
+                }
+                started = true;
+                int from = pos;
+                while (pos < end && buf[pos] != '\n' && buf[pos] != '\r') {
+                    pos++;
+                }
+                if (line.length() + (pos - from) > maxLength) {
+                    throw new ValidationException("Строка " + number + " длиннее " + maxLength + " символов");
+                }
+                line.append(buf, from, pos - from);
+                if (pos < end) {
+                    skipLf = buf[pos] == '\r';
+                    pos++;
+                    return line.toString();
+                }
+            }
+        }
+    }
+
+    private final class Chunk {
+        private final List<Film> films;
+        private final List<Line> lines;
+
+        Chunk(int capacity) {
+            films = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+
+        void add(int number, String json) {
+            Film film;
+            try {
+                film = filmReader.readValue(json);
+                validator.validateCreate(film);
+            } catch (JsonProcessingException e) {
+                lines.add(new Line(number, null, "Некорректный JSON: " + e.getOriginalMessage()));
+                return;
+            } catch (ValidationException | NotFoundException e) {
+                lines.add(new Line(number, null, e.getMessage()));
+                return;
+            }
+            lines.add(new Line(number, film, null));
+            films.add(film);
+        }
+
+        void clear() {
+            films.clear();
+            lines.clear();
+        }
+    }
+}
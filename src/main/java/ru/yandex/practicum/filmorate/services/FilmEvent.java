@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.services;
+
+/**
+ * Изменение каталога, которое FilmService (и UserService для каскадных удалений) публикует
+ * после записи. likes — число лайков фильма после изменения, для LIKES_CHANGED.
+ */
+public record FilmEvent(Type type, long filmId, int likes) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        LIKES_CHANGED,
+        // изменения в обход сервиса фильмов (каскадное удаление лайков, справочники)
+        CATALOG_CHANGED
+    }
+
+    public static FilmEvent created(long filmId) {
+        return new FilmEvent(Type.CREATED, filmId, 0);
+    }
+
+    public static FilmEvent updated(long filmId) {
+        return new FilmEvent(Type.UPDATED, filmId, 0);
+    }
+
+    public static FilmEvent deleted(long filmId) {
+        return new FilmEvent(Type.DELETED, filmId, 0);
+    }
+
+    public static FilmEvent likesChanged(long filmId, int likes) {
+        return new FilmEvent(Type.LIKES_CHANGED, filmId, likes);
+    }
+
+    public static FilmEvent catalogChanged() {
+        return new FilmEvent(Type.CATALOG_CHANGED, 0, 0);
+    }
+}
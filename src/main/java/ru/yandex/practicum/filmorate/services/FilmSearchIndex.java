@@ -0,0 +1,605 @@
+package ru.yandex.practicum.filmorate.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов для /films/search.
+ * <p>
+ * Текст режется на слова из букв и цифр любого алфавита, приводится к нижнему регистру (ё → е)
+ * и проходит упрощённый стемминг: у слов от пяти букв отрезается одно частое русское или английское
+ * окончание. Для каждого слова хранится отсортированный по id список фильмов с отметкой поля,
+ * где оно встретилось; словарь отсортирован, поэтому последнее недописанное слово запроса
+ * (type-ahead) раскрывается в диапазон слов с этим префиксом — не больше MAX_PREFIX_TERMS самых частых.
+ * <p>
+ * Слова запроса объединяются по И. Оценка фильма — сумма idf найденных слов с весом поля
+ * (название вдвое весомее описания), умноженная на 1 + likeWeight * ln(1 + лайки).
+ * <p>
+ * Изменения фильмов применяются синхронно под блокировкой записи; поиск идёт под блокировкой чтения.
+ * При старте тексты читаются из хранилища одним проходом, а разбор порций идёт параллельно в ForkJoinPool.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    public static final int TITLE = 1;
+    public static final int DESCRIPTION = 2;
+    public static final int ALL_FIELDS = TITLE | DESCRIPTION;
+
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int MIN_STEMMED_LENGTH = 5;
+    private static final double TITLE_WEIGHT = 2;
+    private static final double DESCRIPTION_WEIGHT = 1;
+    // неточное совпадение с префиксом весит меньше, чем слово целиком
+    private static final double PREFIX_PENALTY = 0.7;
+    // type-ahead: сколько популярных фильмов проверяется сначала и сколько позиций списков просматривается потом
+    private static final int WALK_BUDGET = 512;
+    private static final int SCAN_BUDGET = 4_096;
+    // проверка фильма по его словам обходится примерно в столько позиций списка
+    private static final int DOC_CHECK_COST = 8;
+    private static final int BOOST_TABLE_SIZE = 4096;
+    private static final int BUILD_CHUNK = 10_000;
+    private static final long[] NONE = new long[0];
+
+    // от длинных к коротким: отрезается самое длинное подходящее
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ами", "ями", "ого", "его", "ому", "ему", "ыми", "ими", "ией",
+            "ой", "ей", "ий", "ый", "ая", "яя", "ое", "ее", "ые", "ие", "ых", "их", "ов", "ев",
+            "ам", "ям", "ах", "ях", "ом", "ем", "ия", "ию",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь"};
+    private static final String[] ENGLISH_ENDINGS = {"ings", "ing", "ies", "ed", "es", "s"};
+
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final double likeWeight;
+    // бонус за лайки считается на каждого кандидата; log1p заметен в профиле, поэтому частые значения в таблице
+    private final double[] boosts = new double[BOOST_TABLE_SIZE];
+    private final int buildParallelism;
+    // поиск — под общей блокировкой, правки списков — под эксклюзивной;
+    // пересборка собирает новый словарь в стороне и подменяет его
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Dictionary dictionary = new Dictionary();
+
+    public FilmSearchIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                           PopularityLeaderboard leaderboard,
+                           @Value("${filmorate.search.like-weight:0.2}") double likeWeight,
+                           // 0 — по числу ядер
+                           @Value("${filmorate.search.build-parallelism:0}") int buildParallelism) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+        this.likeWeight = likeWeight;
+        for (int likes = 0; likes < BOOST_TABLE_SIZE; likes++) boosts[likes] = 1 + likeWeight * Math.log1p(likes);
+        this.buildParallelism = buildParallelism > 0 ? buildParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Перечитывает тексты всех фильмов; поиск до подмены видит прежний индекс.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Dictionary built = new Dictionary();
+        ForkJoinPool pool = new ForkJoinPool(buildParallelism);
+        try {
+            ParallelBuild build = new ParallelBuild(pool, built);
+            filmStorage.forEachText(build::accept);
+            build.finish();
+        } finally {
+            pool.shutdown();
+        }
+        dictionary = built;
+        log.info("Поисковый индекс пересобран: {} фильмов, {} слов за {} мс ({} потоков)",
+                built.films.size(), built.terms.size(), (System.nanoTime() - started) / 1_000_000, buildParallelism);
+    }
+
+    /**
+     * Индексирует новый фильм или заменяет слова изменённого.
+     */
+    public synchronized void put(Film film) {
+        putAll(List.of(film));
+    }
+
+    public synchronized void putAll(Collection<Film> films) {
+        List<Parsed> docs = new ArrayList<>(films.size());
+        for (Film film : films) {
+            docs.add(Parsed.of(film.getId(), film.getName(), film.getDescription()));
+        }
+        lock.writeLock().lock();
+        try {
+            Dictionary current = dictionary;
+            for (Parsed doc : docs) {
+                current.remove(doc.filmId());
+                current.add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public synchronized void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            dictionary.remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * id лучших фильмов по запросу: все слова должны найтись в полях fields (маска TITLE/DESCRIPTION).
+     * Если запрос не кончается пробелом или знаком, его последнее слово — префикс, и поиск идёт
+     * в режиме type-ahead с ограниченным объёмом работы (см. typeAhead).
+     */
+    public long[] search(String query, int fields, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return NONE;
+        boolean typeAhead = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        String prefix = typeAhead ? stem(words.remove(words.size() - 1)) : null;
+
+        lock.readLock().lock();
+        try {
+            Dictionary current = dictionary;
+            double docs = Math.max(1, current.films.size());
+            List<Weighted> exact = new ArrayList<>(words.size());
+            for (String word : new LinkedHashSet<>(stemAll(words))) {
+                Postings postings = current.terms.get(word);
+                if (postings == null) return NONE;
+                exact.add(new Weighted(postings, idf(postings, docs)));
+            }
+            exact.sort(Comparator.comparingInt(term -> term.postings().size));
+            if (prefix == null) return matchAll(exact, fields, limit);
+
+            List<Weighted> expansions = new ArrayList<>();
+            for (Postings postings : current.expand(prefix)) {
+                double factor = postings.term.equals(prefix) ? 1 : PREFIX_PENALTY;
+                expansions.add(new Weighted(postings, idf(postings, docs) * factor));
+            }
+            if (expansions.isEmpty()) return NONE;
+            return typeAhead(current, new Query(exact, expansions, fields), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // все слова обязательны: перебирается самый короткий список, остальные проверяются двоичным поиском
+    private long[] matchAll(List<Weighted> exact, int fields, int limit) {
+        TopK top = new TopK(limit);
+        Postings driver = exact.get(0).postings();
+        for (int i = 0; i < driver.size; i++) {
+            int hit = driver.fields[i] & fields;
+            if (hit == 0) continue;
+            long filmId = driver.ids[i];
+            double score = exact.get(0).idf() * weight(hit);
+            for (int t = 1; t < exact.size() && score > 0; t++) {
+                int other = exact.get(t).postings().fieldsOf(filmId) & fields;
+                score = other == 0 ? 0 : score + exact.get(t).idf() * weight(other);
+            }
+            if (score > 0) top.offer(filmId, boost(leaderboard.likes(filmId)) * score);
+        }
+        return top.sortedIds();
+    }
+
+    /*
+     * Type-ahead. Сначала проверяются WALK_BUDGET самых популярных фильмов: они задают высокий порог
+     * k-го результата, а у всех остальных лайков не больше, чем у последнего проверенного. Затем
+     * просматривается самый короткий источник кандидатов — редчайшее слово запроса или объединение
+     * раскрытий префикса от редких к частым — в пределах SCAN_BUDGET позиций; кандидат, которому даже
+     * с этим потолком бонуса не превзойти порог, отбрасывается без чтения лайков.
+     * Если источник уместился в бюджет, ответ точный. Иначе малопопулярные фильмы с одними частыми
+     * словами могут не попасть в выдачу — для подсказок при наборе это приемлемая цена за время ответа,
+     * не зависящее от размера каталога.
+     */
+    private long[] typeAhead(Dictionary current, Query query, int limit) {
+        TopK top = new TopK(limit);
+        LongHashSet seen = new LongHashSet(WALK_BUDGET);
+        int floorLikes = walkPopular(current, query, top, seen);
+        if (floorLikes < 0) return top.sortedIds();
+        double floorBoost = boost(floorLikes);
+
+        List<Weighted> expansions = new ArrayList<>(query.expansions());
+        expansions.sort(Comparator.comparingInt(term -> term.postings().size));
+        long union = expansions.stream().mapToLong(term -> term.postings().size).sum();
+        Postings rarest = query.exact().isEmpty() ? null : query.exact().get(0).postings();
+        if (rarest != null && rarest.size <= union) {
+            // кандидат проверяется по своим словам — это дороже позиции списка, отсюда меньший бюджет
+            for (int i = 0, n = Math.min(rarest.size, SCAN_BUDGET / DOC_CHECK_COST); i < n; i++) {
+                long filmId = rarest.ids[i];
+                if (seen.contains(filmId)) continue;
+                Doc doc = current.films.get(filmId);
+                double text = doc == null ? -1 : query.score(doc);
+                if (text > 0) offer(top, filmId, text, floorBoost);
+            }
+            return top.sortedIds();
+        }
+
+        LongScoreMap prefixScores = new LongScoreMap((int) Math.min(union, SCAN_BUDGET));
+        long scanned = 0;
+        for (Weighted term : expansions) {
+            Postings postings = term.postings();
+            if (scanned + postings.size > SCAN_BUDGET) break;
+            scanned += postings.size;
+            for (int i = 0; i < postings.size; i++) {
+                int hit = postings.fields[i] & query.fields();
+                if (hit != 0) prefixScores.max(postings.ids[i], term.idf() * weight(hit));
+            }
+        }
+        double maxWords = query.maxScore() - query.maxPrefixScore();
+        prefixScores.forEach((filmId, prefixScore) -> {
+            if (seen.contains(filmId) || !canEnter(top, (maxWords + prefixScore) * floorBoost)) return;
+            double words = scoreAll(query.exact(), filmId, query.fields());
+            if (words >= 0) offer(top, filmId, words + prefixScore, floorBoost);
+        });
+        return top.sortedIds();
+    }
+
+    // лайки самых популярных фильмов по порядку; -1, если выдача уже окончательна,
+    // иначе число лайков последнего проверенного — потолок для всех непроверенных
+    private int walkPopular(Dictionary current, Query query, TopK top, LongHashSet seen) {
+        double maxText = query.maxScore();
+        int[] walked = {0};
+        int[] floor = {-1};
+        leaderboard.visitByLikes((filmId, likes) -> {
+            if (walked[0]++ == WALK_BUDGET || !canEnter(top, maxText * boost(likes))) {
+                // бюджет кончился — непроверенные не популярнее этого фильма; иначе они не превзойдут порог
+                if (walked[0] > WALK_BUDGET) floor[0] = likes;
+                return false;
+            }
+            seen.add(filmId);
+            Doc doc = current.films.get(filmId);
+            double text = doc == null ? -1 : query.score(doc);
+            if (text > 0) top.offer(filmId, boost(likes) * text);
+            return true;
+        });
+        return floor[0];
+    }
+
+    private static boolean canEnter(TopK top, double bound) {
+        // равные очки с меньшим id ещё проходят, поэтому отсекается только строго меньшее
+        return top.size() < top.capacity() || bound >= top.worstScore();
+    }
+
+    private void offer(TopK top, long filmId, double text, double boostCeiling) {
+        if (canEnter(top, text * boostCeiling)) top.offer(filmId, text * boost(leaderboard.likes(filmId)));
+    }
+
+    // сумма очков слов для фильма; -1, если какого-то слова у него нет
+    private static double scoreAll(List<Weighted> terms, long filmId, int fields) {
+        double score = 0;
+        for (Weighted term : terms) {
+            int hit = term.postings().fieldsOf(filmId) & fields;
+            if (hit == 0) return -1;
+            score += term.idf() * weight(hit);
+        }
+        return score;
+    }
+
+    /**
+     * Слова текста в нижнем регистре без стемминга; ё заменяется на е, апострофы внутри слова выкидываются.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                word.append(c == 'ё' ? 'е' : c);
+            } else if ((c == '\'' || c == '’') && !word.isEmpty() && i + 1 < text.length()
+                    && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                continue;
+            } else if (!word.isEmpty()) {
+                addWord(words, word);
+            }
+        }
+        if (!word.isEmpty()) addWord(words, word);
+        return words;
+    }
+
+    static String stem(String word) {
+        if (word.length() < MIN_STEMMED_LENGTH) return word;
+        char last = word.charAt(word.length() - 1);
+        String[] endings = Character.UnicodeBlock.of(last) == Character.UnicodeBlock.CYRILLIC
+                ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            // основа не короче трёх букв
+            if (word.endsWith(ending) && word.length() - ending.length() >= 3) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    private static List<String> stemAll(List<String> words) {
+        List<String> stems = new ArrayList<>(words.size());
+        for (String word : words) stems.add(stem(word));
+        return stems;
+    }
+
+    private static void addWord(List<String> words, StringBuilder word) {
+        if (word.length() <= MAX_TERM_LENGTH) words.add(word.toString());
+        word.setLength(0);
+    }
+
+    private static double idf(Postings postings, double docs) {
+        return Math.log(1 + docs / postings.size);
+    }
+
+    private static double weight(int fields) {
+        return ((fields & TITLE) != 0 ? TITLE_WEIGHT : 0) + ((fields & DESCRIPTION) != 0 ? DESCRIPTION_WEIGHT : 0);
+    }
+
+    private double boost(int likes) {
+        return likes >= 0 && likes < BOOST_TABLE_SIZE ? boosts[likes] : 1 + likeWeight * Math.log1p(likes);
+    }
+
+    // слово запроса или раскрытие префикса и его idf (у раскрытия — с поправкой на неточное совпадение)
+    private record Weighted(Postings postings, double idf) {
+    }
+
+    // проверка кандидата по номерам его слов — без строк и двоичных поисков по спискам фильмов
+    private static final class Query {
+        private final List<Weighted> exact;
+        private final List<Weighted> expansions;
+        // раскрытия по номеру слова: открытая адресация, в слоте номер + 1 (0 — пусто) и idf;
+        // проверяется каждое слово каждого кандидата, поэтому не двоичный поиск
+        private final int[] expansionSlots;
+        private final double[] expansionIdf;
+        private final int fields;
+
+        Query(List<Weighted> exact, List<Weighted> expansions, int fields) {
+            this.exact = exact;
+            this.expansions = expansions;
+            this.fields = fields;
+            int capacity = Integer.highestOneBit(Math.max(4, expansions.size() * 4) - 1) << 1;
+            expansionSlots = new int[capacity];
+            expansionIdf = new double[capacity];
+            for (Weighted expansion : expansions) {
+                int slot = expansion.postings().id & (capacity - 1);
+                while (expansionSlots[slot] != 0) slot = (slot + 1) & (capacity - 1);
+                expansionSlots[slot] = expansion.postings().id + 1;
+                expansionIdf[slot] = expansion.idf();
+            }
+        }
+
+        List<Weighted> exact() {
+            return exact;
+        }
+
+        List<Weighted> expansions() {
+            return expansions;
+        }
+
+        int fields() {
+            return fields;
+        }
+
+        // очки фильма или -1, если он не подходит
+        double score(Doc doc) {
+            double words = 0;
+            int matched = 0;
+            double prefixScore = 0;
+            for (int i = 0; i < doc.terms().length; i++) {
+                int hit = doc.fields()[i] & fields;
+                if (hit == 0) continue;
+                int term = doc.terms()[i];
+                for (Weighted word : exact) {
+                    if (word.postings().id == term) {
+                        words += word.idf() * weight(hit);
+                        matched++;
+                    }
+                }
+                double idf = expansionIdf(term);
+                if (idf > 0) prefixScore = Math.max(prefixScore, idf * weight(hit));
+            }
+            return matched == exact.size() && prefixScore > 0 ? words + prefixScore : -1;
+        }
+
+        private double expansionIdf(int termId) {
+            int mask = expansionSlots.length - 1;
+            for (int slot = termId & mask; expansionSlots[slot] != 0; slot = (slot + 1) & mask) {
+                if (expansionSlots[slot] == termId + 1) return expansionIdf[slot];
+            }
+            return 0;
+        }
+
+        // потолок очков: каждое слово и лучшее раскрытие — во всех полях
+        double maxScore() {
+            double score = 0;
+            for (Weighted word : exact) score += word.idf() * weight(fields);
+            return score + maxPrefixScore();
+        }
+
+        double maxPrefixScore() {
+            double best = 0;
+            for (double idf : expansionIdf) best = Math.max(best, idf);
+            return best * weight(fields);
+        }
+    }
+
+    // разобранный текст фильма: слова без повторов и маска полей каждого
+    private record Parsed(long filmId, String[] terms, byte[] fields) {
+
+        static Parsed of(long filmId, String name, String description) {
+            Map<String, Integer> masks = new LinkedHashMap<>();
+            for (String word : tokenize(name)) masks.merge(stem(word), TITLE, (a, b) -> a | b);
+            for (String word : tokenize(description)) masks.merge(stem(word), DESCRIPTION, (a, b) -> a | b);
+            String[] terms = new String[masks.size()];
+            byte[] fields = new byte[masks.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : masks.entrySet()) {
+                terms[i] = entry.getKey();
+                fields[i++] = entry.getValue().byteValue();
+            }
+            return new Parsed(filmId, terms, fields);
+        }
+    }
+
+    // слова фильма в индексе — номера их списков — и маска полей каждого
+    private record Doc(int[] terms, byte[] fields) {
+    }
+
+    private static final class Dictionary {
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+        // номер слова → его список; номера слов, которых не осталось ни у одного фильма, переиспользуются
+        private final List<Postings> byId = new ArrayList<>();
+        private final Deque<Integer> freeIds = new ArrayDeque<>();
+        // слова каждого фильма — чтобы при изменении снять его из прежних списков и проверять кандидатов
+        private final Map<Long, Doc> films = new HashMap<>();
+
+        void add(Parsed doc) {
+            int[] own = new int[doc.terms().length];
+            for (int i = 0; i < own.length; i++) {
+                Postings postings = terms.computeIfAbsent(doc.terms()[i], this::newPostings);
+                postings.put(doc.filmId(), doc.fields()[i]);
+                own[i] = postings.id;
+            }
+            films.put(doc.filmId(), new Doc(own, doc.fields()));
+        }
+
+        void remove(long filmId) {
+            Doc own = films.remove(filmId);
+            if (own == null) return;
+            for (int termId : own.terms()) {
+                Postings postings = byId.get(termId);
+                if (postings.remove(filmId) && postings.size == 0) {
+                    terms.remove(postings.term);
+                    byId.set(termId, null);
+                    freeIds.push(termId);
+                }
+            }
+        }
+
+        private Postings newPostings(String term) {
+            Integer free = freeIds.poll();
+            Postings postings = new Postings(term, free == null ? byId.size() : free);
+            if (free == null) {
+                byId.add(postings);
+            } else {
+                byId.set(free, postings);
+            }
+            return postings;
+        }
+
+        // до MAX_PREFIX_TERMS самых частых слов с префиксом: редкие хвосты на выдачу почти не влияют
+        List<Postings> expand(String prefix) {
+            PriorityQueue<Postings> frequent = new PriorityQueue<>(Comparator.comparingInt(p -> p.size));
+            for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (frequent.size() < MAX_PREFIX_TERMS) {
+                    frequent.add(postings);
+                } else if (postings.size > frequent.peek().size) {
+                    frequent.poll();
+                    frequent.add(postings);
+                }
+            }
+            return new ArrayList<>(frequent);
+        }
+    }
+
+    // фильмы одного слова по возрастанию id и поля, где оно встретилось
+    private static final class Postings {
+        private final String term;
+        private final int id;
+        private long[] ids = new long[4];
+        private byte[] fields = new byte[4];
+        private int size;
+
+        Postings(String term, int id) {
+            this.term = term;
+            this.id = id;
+        }
+
+        int fieldsOf(long filmId) {
+            int pos = Arrays.binarySearch(ids, 0, size, filmId);
+            return pos < 0 ? 0 : fields[pos];
+        }
+
+        void put(long filmId, byte mask) {
+            // новые фильмы получают наибольший id — обычно это дописывание в конец
+            int pos = size > 0 && ids[size - 1] < filmId ? -size - 1 : Arrays.binarySearch(ids, 0, size, filmId);
+            if (pos >= 0) {
+                fields[pos] = mask;
+                return;
+            }
+            int at = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(fields, at, fields, at + 1, size - at);
+            ids[at] = filmId;
+            fields[at] = mask;
+            size++;
+        }
+
+        boolean remove(long filmId) {
+            int pos = Arrays.binarySearch(ids, 0, size, filmId);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            System.arraycopy(fields, pos + 1, fields, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // тексты читаются одним потоком, разбор порций идёт в пуле, а в словарь они ложатся по порядку id
+    private final class ParallelBuild {
+        private final ForkJoinPool pool;
+        private final Dictionary target;
+        private final Deque<ForkJoinTask<List<Parsed>>> pending = new ArrayDeque<>();
+        private List<String[]> texts = new ArrayList<>(BUILD_CHUNK);
+        private long[] ids = new long[BUILD_CHUNK];
+
+        ParallelBuild(ForkJoinPool pool, Dictionary target) {
+            this.pool = pool;
+            this.target = target;
+        }
+
+        void accept(long filmId, String name, String description) {
+            ids[texts.size()] = filmId;
+            texts.add(new String[]{name, description});
+            if (texts.size() == BUILD_CHUNK) submit();
+        }
+
+        void finish() {
+            if (!texts.isEmpty()) submit();
+            while (!pending.isEmpty()) merge(pending.poll().join());
+        }
+
+        private void submit() {
+            List<String[]> chunk = texts;
+            long[] chunkIds = ids;
+            pending.add(pool.submit(() -> {
+                List<Parsed> docs = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    docs.add(Parsed.of(chunkIds[i], chunk.get(i)[0], chunk.get(i)[1]));
+                }
+                return docs;
+            }));
+            texts = new ArrayList<>(BUILD_CHUNK);
+            ids = new long[BUILD_CHUNK];
+            // не копим в памяти больше порций, чем успевает разобрать пул
+            while (pending.size() > buildParallelism * 2 || !pending.isEmpty() && pending.peek().isDone()) {
+                merge(pending.poll().join());
+            }
+        }
+
+        private void merge(List<Parsed> docs) {
+            for (Parsed doc : docs) target.add(doc);
+        }
+    }
+}
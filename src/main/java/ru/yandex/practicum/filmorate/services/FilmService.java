@@ -2,19 +2,24 @@ package ru.yandex.practicum.filmorate.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.DomainMetrics;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Version;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.validation.DomainValidator;
 import ru.yandex.practicum.filmorate.validation.FilmValidator;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @Slf4j
 @Service
@@ -23,20 +28,45 @@ public class FilmService {
     private final FilmStorage filmStorage;
     private final DomainValidator<Film> validator;
     private final UserService userService;
+    private final PopularityLeaderboard leaderboard;
+    private final DomainMetrics metrics;
+    private final PopularFilmsCache popularCache;
+    private final ApplicationEventPublisher events;
+    private final CoLikeIndex coLikes;
+    private final FilmSearchIndex searchIndex;
+    private final CollectionVersions versions;
 
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
                        UserService userService,
-                       FilmValidator validator) {
+                       FilmValidator validator,
+                       PopularityLeaderboard leaderboard,
+                       DomainMetrics metrics,
+                       PopularFilmsCache popularCache,
+                       ApplicationEventPublisher events,
+                       CoLikeIndex coLikes,
+                       FilmSearchIndex searchIndex,
+                       CollectionVersions versions) {
         this.filmStorage = filmStorage;
         this.userService = userService;
         this.validator = validator;
+        this.leaderboard = leaderboard;
+        this.metrics = metrics;
+        this.popularCache = popularCache;
+        this.events = events;
+        this.coLikes = coLikes;
+        this.searchIndex = searchIndex;
+        this.versions = versions;
     }
 
     public Film create(Film film) {
         validator.validateCreate(film);
         Film normalized = normalize(film);
-        log.info("Запрос на создание фильма: {}", normalized);
-        return filmStorage.create(normalized);
+        Film created = filmStorage.create(normalized);
+        log.info("Создан фильм через сервис: id={}, жанров={}", created.getId(), created.getGenres().size());
+        leaderboard.add(created.getId(), created.getLikes().size());
+        searchIndex.put(created);
+        events.publishEvent(FilmEvent.created(created.getId()));
+        return created;
     }
 
     public Collection<Film> findAll() {
@@ -44,6 +74,16 @@ public class FilmService {
         return filmStorage.findAll();
     }
 
+    public void streamAll(Consumer<Film> consumer) {
+        log.info("Запрос на потоковый вывод всех фильмов");
+        filmStorage.streamAll(consumer);
+    }
+
+    public Page<Film> findPage(long after, int limit) {
+        log.info("Запрос страницы фильмов: after={}, limit={}", after, limit);
+        return Page.of(filmStorage.findPage(after, limit + 1), limit, Film::getId);
+    }
+
     public Film getFilmById(Long id) {
         if (id == null) {
             throw new ValidationException("id должен быть указан!");
@@ -52,6 +92,21 @@ public class FilmService {
         return filmStorage.getById(id);
     }
 
+    /**
+     * Версия фильма для условного GET — один запрос по первичному ключу, без лайков и жанров.
+     */
+    public Version getFilmVersion(Long id) {
+        return filmStorage.getVersion(id);
+    }
+
+    /**
+     * Версия каталога: общая для списка, страниц и популярных — все они меняются только вместе с фильмами.
+     * Счётчик в памяти, без запроса к БД.
+     */
+    public Version getCatalogVersion() {
+        return versions.films();
+    }
+
     public Film update(Film newFilm) {
 
         if (newFilm == null) {
@@ -80,77 +135,142 @@ public class FilmService {
             existedFilm.setMpa(canon);
         }
 
-        log.info("Обновлён фильм через сервис: {}", existedFilm);
-        return filmStorage.update(existedFilm);
+        log.info("Обновлён фильм через сервис: id={}, жанров={}, лайков={}",
+                id, existedFilm.getGenres().size(), existedFilm.getLikes().size());
+        Film updated = filmStorage.update(existedFilm);
+        searchIndex.put(updated);
+        events.publishEvent(FilmEvent.updated(id));
+        return updated;
     }
 
     public void deleteById(Long id) {
         log.info("Запрос на удаление фильма с id: {}", id);
         filmStorage.deleteById(id);
+        leaderboard.remove(id);
+        searchIndex.remove(id);
+        events.publishEvent(FilmEvent.deleted(id));
+        events.publishEvent(LikeEvent.filmDeleted(id));
     }
 
     public void addLike(Long filmId, Long userId) {
-        LikeContext lc = likeValidate(filmId, userId);
-
-        boolean filmChanged = lc.film().getLikes().add(userId);
-        boolean userChanged = lc.user().getLikes().add(filmId);
+        likeValidate(filmId, userId);
 
-        if (!filmChanged && !userChanged) {
-            return;
+        if (leaderboard.applyLike(filmId, 1, () -> filmStorage.addLike(filmId, userId))) {
+            metrics.likeAdded();
+            events.publishEvent(FilmEvent.likesChanged(filmId, leaderboard.likes(filmId)));
+            events.publishEvent(LikeEvent.added(filmId, userId));
+            log.info("Запрос на добавление лайка от пользователя {} фильму {}", userId, filmId);
         }
-
-        filmStorage.update(lc.film());
-        userService.update(lc.user());
-        log.info("Запрос на добавление лайка от пользователя {} фильму {}", userId, filmId);
     }
 
     public void removeLike(Long filmId, Long userId) {
-        LikeContext lc = likeValidate(filmId, userId);
+        likeValidate(filmId, userId);
 
-        boolean filmChanged = lc.film().getLikes().remove(userId);
-        boolean userChanged = lc.user().getLikes().remove(filmId);
+        if (leaderboard.applyLike(filmId, -1, () -> filmStorage.removeLike(filmId, userId))) {
+            metrics.likeRemoved();
+            events.publishEvent(FilmEvent.likesChanged(filmId, leaderboard.likes(filmId)));
+            events.publishEvent(LikeEvent.removed(filmId, userId));
+            log.info("Запрос на удаление лайка пользователя {} фильму {}", userId, filmId);
+        }
+    }
 
-        if (!filmChanged && !userChanged) {
-            return;
+    public Collection<Film> getTopFilms(int count) {
+        return getPopularFilms(count).films();
+    }
+
+    /**
+     * Популярные фильмы из кеша вместе с версией каталога, при которой они собраны.
+     */
+    public PopularFilms getPopularFilms(int count) {
+        return getPopularFilms(new PopularQuery(count));
+    }
+
+    /**
+     * Популярные фильмы жанра и/или года: без фильтров — из рейтинга в памяти,
+     * с фильтром — из вторичных индексов хранилища.
+     */
+    public PopularFilms getPopularFilms(PopularQuery query) {
+        if (query.genreId() != null && !filmStorage.isGenreExist(query.genreId())) {
+            throw new NotFoundException("Жанр с id " + query.genreId() + " не найден!");
         }
+        return popularCache.get(query, this::loadPopular);
+    }
 
-        filmStorage.update(lc.film());
-        userService.update(lc.user());
-        log.info("Запрос на удаление лайка пользователя {} фильму {}", userId, filmId);
+    private PopularFilms loadPopular(PopularQuery query) {
+        int count = query.count();
+        log.info("Запрос на получение ТОП {} фильмов по популярности: жанр {}, год {}",
+                count, query.genreId(), query.year());
+        // версия читается до данных — как в условном GET (см. FilmController)
+        Version version = versions.films();
+        if (query.isFiltered()) {
+            List<Film> films = filmStorage.findByIds(filmStorage.findPopularIds(count, query.genreId(), query.year()));
+            return new PopularFilms(List.copyOf(films), version);
+        }
+        List<Long> ids = leaderboard.top(count);
+        List<Film> films = filmStorage.findByIds(ids);
+        if (films.size() < ids.size()) {
+            // фильм удалён в гонке с лайком — убираем его из рейтинга
+            Set<Long> found = films.stream().map(Film::getId).collect(Collectors.toSet());
+            ids.stream().filter(id -> !found.contains(id)).forEach(leaderboard::remove);
+        }
+        return new PopularFilms(List.copyOf(films), version);
     }
 
-    public Collection<Film> getTopFilms(int count) {
-        log.info("Запрос на получение ТОП {} фильмов по популярности", count);
-        return filmStorage.findAll().stream()
-                .sorted(Comparator.comparingInt((Film f) -> f.getLikes().size()).reversed())
-                .limit(count)
-                .toList();
-    }
-
-    public LikeContext likeValidate(Long filmId, Long userId) {
-        Film film;
-        try {
-            film = filmStorage.getById(filmId);
-        } catch (NotFoundException e) {
+    /**
+     * «Кто лайкнул этот фильм, лайкнул и...»: соседи фильма из индекса совместных лайков.
+     */
+    public List<Film> getSimilarFilms(Long filmId, int count) {
+        if (!filmStorage.isFilmExist(filmId)) {
             throw new NotFoundException("Фильм с id " + filmId + " не найден!");
         }
-        User user;
-        try {
-            user = userService.getUserById(userId);
-        } catch (NotFoundException e) {
+        return filmStorage.findByIds(LongStream.of(coLikes.similar(filmId, count)).boxed().toList());
+    }
+
+    public List<Film> getRecommendations(Long userId, int count) {
+        if (!userService.isUserExist(userId)) {
             throw new NotFoundException("Пользователь с id " + userId + " не найден!");
         }
-        return new LikeContext(film, user);
+        long[] ids = coLikes.recommendations(userId, count);
+        log.info("Запрос рекомендаций фильмов пользователю {}: найдено {}", userId, ids.length);
+        return filmStorage.findByIds(LongStream.of(ids).boxed().toList());
     }
 
-    public record LikeContext(Film film, User user) {
+    /**
+     * Полнотекстовый поиск по названию и/или описанию; by — поля через запятую: title, description.
+     */
+    public List<Film> searchFilms(String query, String by, int limit) {
+        if (FilmSearchIndex.tokenize(query).isEmpty()) {
+            throw new ValidationException("Запрос должен содержать хотя бы одно слово");
+        }
+        int fields = 0;
+        for (String field : by.split(",")) {
+            fields |= switch (field.trim().toLowerCase(Locale.ROOT)) {
+                case "title" -> FilmSearchIndex.TITLE;
+                case "description" -> FilmSearchIndex.DESCRIPTION;
+                default -> throw new ValidationException("Неизвестное поле поиска: " + field.trim()
+                        + " (допустимы title и description)");
+            };
+        }
+        long[] ids = searchIndex.search(query, fields, limit);
+        log.info("Поиск фильмов по '{}' в {}: найдено {}", query, by, ids.length);
+        return filmStorage.findByIds(LongStream.of(ids).boxed().toList());
+    }
+
+    public void likeValidate(Long filmId, Long userId) {
+        if (!filmStorage.isFilmExist(filmId)) {
+            throw new NotFoundException("Фильм с id " + filmId + " не найден!");
+        }
+        if (!userService.isUserExist(userId)) {
+            throw new NotFoundException("Пользователь с id " + userId + " не найден!");
+        }
     }
 
     public Genre getGenre(Long id) {
-        if (filmStorage.getGenreById(id) == null) {
+        Genre genre = filmStorage.getGenreById(id);
+        if (genre == null) {
             throw new NotFoundException("Жанр не найден id=" + id);
         }
-        return filmStorage.getGenreById(id);
+        return genre;
     }
 
     public Collection<Genre> getAllGener() {
@@ -158,16 +278,30 @@ public class FilmService {
     }
 
     public Mpa getMpa(Long id) {
-        if (filmStorage.getMpaById(id) == null) {
+        Mpa mpa = filmStorage.getMpaById(id);
+        if (mpa == null) {
             throw new NotFoundException("MPA не найден id=" + id);
         }
-        return filmStorage.getMpaById(id);
+        return mpa;
+    }
+
+    public void refreshReferenceData() {
+        log.info("Перезагрузка справочников жанров и MPA");
+        filmStorage.refreshReferenceData();
+        events.publishEvent(FilmEvent.catalogChanged());
     }
 
     public Collection<Mpa> getAllMpa() {
         return filmStorage.getAllMpa().values();
     }
 
+    /**
+     * Версия справочников жанров и MPA по их содержимому в памяти.
+     */
+    public Version getReferenceDataVersion() {
+        return Version.ofContent("reference", Objects.hash(filmStorage.getAllGenres(), filmStorage.getAllMpa()));
+    }
+
     private Film normalize(Film film) {
         Film copy = new Film();
         copy.setId(film.getId());
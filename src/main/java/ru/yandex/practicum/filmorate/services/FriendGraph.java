@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.SortedLongArrays;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы в памяти для рекомендаций «друзья друзей».
+ * <p>
+ * Основа — CSR (compressed sparse row): отсортированные id пользователей с исходящими связями,
+ * смещения их списков и один общий long[] друзей — 8 байт на связь плюс 12 на пользователя.
+ * Основа неизменяема; изменения дружбы ложатся поверх неё полными списками друзей затронутых
+ * пользователей и вливаются в новую основу, когда их набирается больше EDGES_PER_PATCH_RATIO-й
+ * части графа. Чтение без блокировок работает со снимком «основа + правки».
+ */
+@Slf4j
+@Component
+public class FriendGraph {
+
+    private static final int EDGES_PER_PATCH_RATIO = 16;
+    private static final int MIN_PATCHED_EDGES = 4096;
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final UserStorage userStorage;
+    private volatile Snapshot snapshot = new Snapshot(Csr.EMPTY, new ConcurrentHashMap<>(), 0);
+
+    public FriendGraph(@Qualifier("userDbStorage") UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    /**
+     * Перечитывает все связи из хранилища; чтения до подмены видят прежний граф.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        CsrBuilder builder = new CsrBuilder();
+        userStorage.forEachFriendship(builder::add);
+        Csr csr = builder.build();
+        snapshot = new Snapshot(csr, new ConcurrentHashMap<>(), 0);
+        log.info("Граф дружбы пересобран: {} пользователей, {} связей", csr.userIds.length, csr.friends.length);
+    }
+
+    public synchronized void addFriend(long userId, long friendId) {
+        patch(userId, SortedLongArrays.with(snapshot.friendsOf(userId), friendId));
+    }
+
+    public synchronized void removeFriend(long userId, long friendId) {
+        patch(userId, SortedLongArrays.without(snapshot.friendsOf(userId), friendId));
+    }
+
+    /**
+     * Убирает удалённого пользователя: его список и его самого из списков тех, у кого он был в друзьях.
+     */
+    public synchronized void removeUser(long userId, long[] friendedBy) {
+        for (long follower : friendedBy) {
+            patch(follower, SortedLongArrays.without(snapshot.friendsOf(follower), userId));
+        }
+        patch(userId, NO_FRIENDS);
+    }
+
+    /**
+     * Кандидаты в друзья: пользователи, с которыми есть общие друзья, кроме самого пользователя
+     * и его друзей — по убыванию числа общих друзей, при равенстве по id.
+     */
+    public long[] suggestions(long userId, int limit) {
+        Snapshot graph = snapshot;
+        long[] own = graph.friendsOf(userId);
+        if (own.length == 0 || limit <= 0) return NO_FRIENDS;
+
+        Csr csr = graph.csr;
+        LongScoreMap mutual = new LongScoreMap(own.length * 16);
+        for (long friend : own) {
+            long[] patched = graph.patched.get(friend);
+            if (patched != null) {
+                for (long candidate : patched) mutual.add(candidate, 1);
+            } else {
+                int row = Arrays.binarySearch(csr.userIds, friend);
+                if (row < 0) continue;
+                for (int i = csr.offsets[row], end = csr.offsets[row + 1]; i < end; i++) {
+                    mutual.add(csr.friends[i], 1);
+                }
+            }
+        }
+
+        TopK top = new TopK(limit);
+        mutual.forEach((candidate, count) -> {
+            if (candidate != userId && Arrays.binarySearch(own, candidate) < 0) top.offer(candidate, count);
+        });
+        return top.sortedIds();
+    }
+
+    private void patch(long userId, long[] friends) {
+        Snapshot current = snapshot;
+        long[] previous = current.patched.put(userId, friends);
+        long patchedEdges = current.patchedEdges + friends.length - (previous == null ? 0 : previous.length);
+        if (patchedEdges > Math.max(MIN_PATCHED_EDGES, current.csr.friends.length / EDGES_PER_PATCH_RATIO)) {
+            snapshot = new Snapshot(merge(current), new ConcurrentHashMap<>(), 0);
+        } else {
+            snapshot = new Snapshot(current.csr, current.patched, patchedEdges);
+        }
+    }
+
+    // новая основа: по каждому пользователю — его правка, если она есть, иначе строка старой основы
+    private static Csr merge(Snapshot current) {
+        Csr csr = current.csr;
+        long[] patchedIds = current.patched.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        CsrBuilder builder = new CsrBuilder();
+        int row = 0;
+        int p = 0;
+        while (row < csr.userIds.length || p < patchedIds.length) {
+            long next = p == patchedIds.length
+                    ? csr.userIds[row]
+                    : row == csr.userIds.length ? patchedIds[p] : Math.min(csr.userIds[row], patchedIds[p]);
+            if (p < patchedIds.length && patchedIds[p] == next) {
+                for (long friend : current.patched.get(next)) builder.add(next, friend);
+                p++;
+                if (row < csr.userIds.length && csr.userIds[row] == next) row++;
+            } else {
+                for (int i = csr.offsets[row]; i < csr.offsets[row + 1]; i++) builder.add(next, csr.friends[i]);
+                row++;
+            }
+        }
+        return builder.build();
+    }
+
+    // patched — полные текущие списки друзей пользователей, изменённых после сборки основы
+    private record Snapshot(Csr csr, Map<Long, long[]> patched, long patchedEdges) {
+
+        long[] friendsOf(long userId) {
+            long[] friends = patched.get(userId);
+            if (friends != null) return friends;
+            int row = Arrays.binarySearch(csr.userIds, userId);
+            if (row < 0) return NO_FRIENDS;
+            return Arrays.copyOfRange(csr.friends, csr.offsets[row], csr.offsets[row + 1]);
+        }
+    }
+
+    private record Csr(long[] userIds, int[] offsets, long[] friends) {
+        static final Csr EMPTY = new Csr(NO_FRIENDS, new int[]{0}, NO_FRIENDS);
+    }
+
+    // связи должны приходить по возрастанию (userId, friendId)
+    private static final class CsrBuilder {
+        private long[] userIds = new long[1024];
+        private int[] offsets = new int[1025];
+        private long[] friends = new long[4096];
+        private int users;
+        private int edges;
+
+        void add(long userId, long friendId) {
+            if (users == 0 || userIds[users - 1] != userId) {
+                if (users == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, users * 2);
+                    offsets = Arrays.copyOf(offsets, users * 2 + 1);
+                }
+                userIds[users] = userId;
+                offsets[users] = edges;
+                users++;
+            }
+            if (edges == friends.length) {
+                friends = Arrays.copyOf(friends, edges * 2);
+            }
+            friends[edges++] = friendId;
+        }
+
+        Csr build() {
+            int[] rowOffsets = Arrays.copyOf(offsets, users + 1);
+            rowOffsets[users] = edges;
+            return new Csr(Arrays.copyOf(userIds, users), rowOffsets, Arrays.copyOf(friends, edges));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.services;
+
+/**
+ * Изменение лайков с указанием пользователя — для индексов, которым важно, кто лайкнул
+ * (FilmEvent несёт только число лайков). Публикуется после записи.
+ */
+public record LikeEvent(Type type, long filmId, long userId) {
+
+    public enum Type {
+        ADDED,
+        REMOVED,
+        // лайки фильма или пользователя удалены каскадом вместе с ним
+        FILM_DELETED,
+        USER_DELETED
+    }
+
+    public static LikeEvent added(long filmId, long userId) {
+        return new LikeEvent(Type.ADDED, filmId, userId);
+    }
+
+    public static LikeEvent removed(long filmId, long userId) {
+        return new LikeEvent(Type.REMOVED, filmId, userId);
+    }
+
+    public static LikeEvent filmDeleted(long filmId) {
+        return new LikeEvent(Type.FILM_DELETED, filmId, 0);
+    }
+
+    public static LikeEvent userDeleted(long userId) {
+        return new LikeEvent(Type.USER_DELETED, 0, userId);
+    }
+}
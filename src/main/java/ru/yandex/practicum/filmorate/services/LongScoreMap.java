@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.services;
+
+/**
+ * Накопитель очков по id без упаковки: открытая адресация по long-ключу с double-значением.
+ * id положительны, 0 — пустой слот. Для одного запроса, не потокобезопасен.
+ */
+final class LongScoreMap {
+
+    private static final int MAX_INITIAL_CAPACITY = 1 << 24;
+
+    private long[] keys;
+    private double[] scores;
+    private int size;
+
+    LongScoreMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(expected, MAX_INITIAL_CAPACITY)) - 1) << 1;
+        keys = new long[capacity];
+        scores = new double[capacity];
+    }
+
+    void add(long key, double delta) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (long cur; (cur = keys[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key) {
+                scores[i] += delta;
+                return;
+            }
+        }
+        keys[i] = key;
+        scores[i] = delta;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    /**
+     * Оставляет за key наибольшее из текущего и score.
+     */
+    void max(long key, double score) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (long cur; (cur = keys[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key) {
+                if (score > scores[i]) scores[i] = score;
+                return;
+            }
+        }
+        keys[i] = key;
+        scores[i] = score;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(ScoreConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) consumer.accept(keys[i], scores[i]);
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldScores = scores;
+        keys = new long[oldKeys.length * 2];
+        scores = new double[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            scores[i] = oldScores[j];
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        // фибоначчиево хеширование, как в LongHashSet
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    @FunctionalInterface
+    interface ScoreConsumer {
+        void accept(long key, double score);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.services;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Version;
+
+import java.util.List;
+
+/**
+ * Результат /films/popular вместе с версией каталога, прочитанной до него: из кеша отдаётся
+ * с той версией, при которой был собран, и ETag не опережает данные.
+ */
+public record PopularFilms(List<Film> films, Version version) {
+}
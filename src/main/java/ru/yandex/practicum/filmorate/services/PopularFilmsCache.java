@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кеш результатов /films/popular по параметрам запроса.
+ * <p>
+ * Записи не живут по таймеру: их помечают устаревшими события FilmEvent, и только те,
+ * на которые событие влияет (фильм есть в результате или лайк поднимает его в топ).
+ * Жанр и год фильма событие не несёт, поэтому для запросов с фильтром лайк чужого фильма
+ * проверяется тем же порогом, а любая правка фильма считается возможным входом в выборку.
+ * Устаревшая запись ещё отдаётся не дольше max-staleness с момента первого такого события,
+ * потом пересобирается. Пересборку одного ключа выполняет один поток, остальные ждут его результат.
+ * Один и тот же результат отдаётся всем запросам, поэтому хранится копия только для чтения:
+ * сеттеры фильма и изменение его лайков и жанров бросают UnsupportedOperationException.
+ * Попадания и промахи — в filmorate.cache.gets{cache="popular"}.
+ */
+@Component
+public class PopularFilmsCache {
+
+    private static final long CLEAN = Long.MAX_VALUE;
+
+    private final long maxStalenessNanos;
+    private final int maxEntries;
+    private final Map<PopularQuery, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<PopularQuery, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    // число событий: загрузка сверяет его до и после, чтобы не потерять событие, пришедшее во время сборки
+    private final AtomicLong events = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public PopularFilmsCache(MeterRegistry registry,
+                             @Value("${filmorate.popular-cache.max-staleness:0s}") Duration maxStaleness,
+                             @Value("${filmorate.popular-cache.max-entries:64}") int maxEntries) {
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.maxEntries = maxEntries;
+        this.hits = gets(registry, "hit");
+        this.misses = gets(registry, "miss");
+        Gauge.builder("filmorate.cache.size", entries, Map::size)
+                .tag("cache", "popular")
+                .register(registry);
+    }
+
+    public PopularFilms get(PopularQuery query, Function<PopularQuery, PopularFilms> loader) {
+        Entry entry = entries.get(query);
+        if (entry != null && entry.isFresh(System.nanoTime())) {
+            hits.increment();
+            return entry.result;
+        }
+        misses.increment();
+        return load(query, loader).result;
+    }
+
+    @EventListener
+    public void onFilmEvent(FilmEvent event) {
+        events.incrementAndGet();
+        long now = System.nanoTime();
+        for (Entry entry : entries.values()) {
+            if (entry.isAffectedBy(event)) {
+                entry.markStale(now);
+            }
+        }
+    }
+
+    private Entry load(PopularQuery query, Function<PopularQuery, PopularFilms> loader) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(query, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // пока этот поток ждал очереди, запись могла обновить предыдущая загрузка
+            Entry current = entries.get(query);
+            if (current != null && current.isFresh(System.nanoTime())) {
+                mine.complete(current);
+                return current;
+            }
+            long seen = events.get();
+            long started = System.nanoTime();
+            Entry entry = new Entry(query, readOnly(loader.apply(query)));
+            evictIfFull(query);
+            entries.put(query, entry);
+            // сначала публикация, потом сверка: событие либо увидит запись, либо изменит счётчик
+            if (events.get() != seen) {
+                entry.markStale(started);
+            }
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(query, mine);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    // ключей немного (count ограничен в контроллере), поэтому вытесняем произвольный, без учёта частоты
+    private void evictIfFull(PopularQuery incoming) {
+        Iterator<PopularQuery> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            PopularQuery key = keys.next();
+            if (!key.equals(incoming)) keys.remove();
+        }
+    }
+
+    private static PopularFilms readOnly(PopularFilms result) {
+        List<Film> films = new ArrayList<>(result.films().size());
+        for (Film film : result.films()) {
+            films.add(new ReadOnlyFilm(film));
+        }
+        return new PopularFilms(List.copyOf(films), result.version());
+    }
+
+    private static Counter gets(MeterRegistry registry, String result) {
+        return Counter.builder("filmorate.cache.gets")
+                .description("Обращения к кешу: попадания и промахи")
+                .tag("cache", "popular")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static final class ReadOnlyFilm extends Film {
+
+        ReadOnlyFilm(Film film) {
+            super.setId(film.getId());
+            super.setName(film.getName());
+            super.setDescription(film.getDescription());
+            super.setReleaseDate(film.getReleaseDate());
+            super.setDuration(film.getDuration());
+            Set<Genre> genres = new LinkedHashSet<>();
+            for (Genre genre : film.getGenres()) {
+                genres.add(new Genre(genre.getId(), genre.getName()));
+            }
+            super.setGenres(Collections.unmodifiableSet(genres));
+            Mpa mpa = film.getMpa();
+            super.setMpa(mpa == null ? null : new Mpa(mpa.getId(), mpa.getName()));
+            super.setLikes(LongHashSet.readOnlyCopy(film.getLikes()));
+        }
+
+        @Override
+        public void setId(Long id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setReleaseDate(LocalDate releaseDate) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDuration(Integer duration) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setGenres(Set<Genre> genres) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setMpa(Mpa mpa) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLikes(LongHashSet likes) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Фильм из кеша популярных только для чтения");
+        }
+    }
+
+    private final class Entry {
+        private final PopularQuery query;
+        private final PopularFilms result;
+        private final LongHashSet ids;
+        // последняя позиция результата: фильм вне топа попадает в него, только если обгонит её
+        private final int lastLikes;
+        private final long lastId;
+        private final AtomicLong staleSince = new AtomicLong(CLEAN);
+
+        Entry(PopularQuery query, PopularFilms result) {
+            List<Film> films = result.films();
+            this.query = query;
+            this.result = result;
+            this.ids = new LongHashSet(films.size());
+            films.forEach(film -> ids.add(film.getId()));
+            Film last = films.isEmpty() ? null : films.get(films.size() - 1);
+            this.lastLikes = last == null ? 0 : last.getLikes().size();
+            this.lastId = last == null ? 0 : last.getId();
+        }
+
+        boolean isFresh(long now) {
+            long since = staleSince.get();
+            return since == CLEAN || now - since < maxStalenessNanos;
+        }
+
+        // отсчёт ведём от первого неучтённого события
+        void markStale(long now) {
+            staleSince.compareAndSet(CLEAN, now);
+        }
+
+        boolean isAffectedBy(FilmEvent event) {
+            boolean full = result.films().size() >= query.count();
+            return switch (event.type()) {
+                case CATALOG_CHANGED -> true;
+                case CREATED -> !full;
+                case UPDATED -> ids.contains(event.filmId()) || query.isFiltered();
+                case DELETED -> ids.contains(event.filmId());
+                case LIKES_CHANGED -> ids.contains(event.filmId()) || !full
+                        || event.likes() > lastLikes || (event.likes() == lastLikes && event.filmId() < lastId);
+            };
+        }
+    }
+}
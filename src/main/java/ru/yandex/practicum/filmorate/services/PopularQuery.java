@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.services;
+
+/**
+ * Параметры запроса /films/popular — ключ кеша популярных фильмов.
+ * genreId и year равны null, если по ним не фильтруют.
+ */
+public record PopularQuery(int count, Long genreId, Integer year) {
+
+    public PopularQuery(int count) {
+        this(count, null, null);
+    }
+
+    public boolean isFiltered() {
+        return genreId != null || year != null;
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Рейтинг фильмов по числу лайков, который поддерживается на каждом изменении,
+ * а не пересчитывается на каждый запрос /films/popular.
+ * <p>
+ * Позиции хранятся в skip-list по (лайки по убыванию, id), счётчики — по фильмам.
+ * Топ-N читается без блокировок за O(N), лайк стоит O(log n).
+ */
+@Slf4j
+@Component
+public class PopularityLeaderboard {
+
+    private static final Comparator<Rank> ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final FilmStorage filmStorage;
+    // лайки идут под общей блокировкой, пересборка — под эксклюзивной:
+    // так лайк не может попасть и в прочитанные из хранилища счётчики, и в дельту поверх них
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Board board = new Board();
+
+    public PopularityLeaderboard(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    /**
+     * Перечитывает счётчики лайков из хранилища; чтения до подмены видят прежний рейтинг.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Board rebuilt = new Board();
+            filmStorage.forEachLikeCount(rebuilt::put);
+            board = rebuilt;
+            log.info("Рейтинг популярности пересобран: {} фильмов", rebuilt.likes.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * id самых популярных фильмов: по убыванию лайков, при равенстве — по id.
+     */
+    public List<Long> top(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        // во время переноса фильма на новую позицию он ненадолго виден дважды
+        LongHashSet seen = new LongHashSet(count);
+        for (Rank rank : board.ranking) {
+            if (ids.size() == count) break;
+            if (seen.add(rank.filmId())) ids.add(rank.filmId());
+        }
+        return ids;
+    }
+
+    /**
+     * Текущее число лайков фильма в рейтинге; 0, если фильма в нём нет.
+     */
+    public int likes(long filmId) {
+        return board.likes.getOrDefault(filmId, 0);
+    }
+
+    /**
+     * Обходит фильмы по убыванию лайков, при равенстве — по id, пока visitor возвращает true.
+     */
+    public void visitByLikes(RankVisitor visitor) {
+        for (Rank rank : board.ranking) {
+            if (!visitor.visit(rank.filmId(), rank.likes())) return;
+        }
+    }
+
+    // как и лайк, под общей блокировкой: иначе фильм, созданный или удалённый во время пересборки,
+    // попадёт в доску, которую она сейчас заменит, и пропадёт из рейтинга (или останется в нём)
+    public void add(long filmId, int likes) {
+        lock.readLock().lock();
+        try {
+            board.put(filmId, likes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.readLock().lock();
+        try {
+            board.remove(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет запись лайка и, если она что-то изменила, сдвигает фильм в рейтинге на delta.
+     */
+    public boolean applyLike(long filmId, int delta, BooleanSupplier write) {
+        lock.readLock().lock();
+        try {
+            boolean changed = write.getAsBoolean();
+            if (changed) board.adjust(filmId, delta);
+            return changed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет запись, снимающую по одному лайку с каждого из фильмов, которые она вернула (filmIds),
+     * и сдвигает их в рейтинге на −1. Если запись бросила исключение, рейтинг не меняется.
+     */
+    public <T> T withdrawLikes(Supplier<T> write, Function<T, long[]> filmIds) {
+        lock.readLock().lock();
+        try {
+            T result = write.get();
+            for (long filmId : filmIds.apply(result)) {
+                board.adjust(filmId, -1);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface RankVisitor {
+        boolean visit(long filmId, int likes);
+    }
+
+    private record Rank(int likes, long filmId) {
+    }
+
+    private static final class Board {
+        private final Map<Long, Integer> likes = new ConcurrentHashMap<>();
+        private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+        void put(long filmId, int count) {
+            likes.computeIfAbsent(filmId, id -> {
+                ranking.add(new Rank(count, id));
+                return count;
+            });
+        }
+
+        void remove(long filmId) {
+            likes.computeIfPresent(filmId, (id, count) -> {
+                ranking.remove(new Rank(count, id));
+                return null;
+            });
+        }
+
+        // фильм, которого нет в рейтинге (уже удалён), не воскрешаем
+        void adjust(long filmId, int delta) {
+            likes.computeIfPresent(filmId, (id, count) -> {
+                int updated = count + delta;
+                // сначала новая позиция, потом снятие старой: читатель не теряет фильм из топа
+                ranking.add(new Rank(updated, id));
+                ranking.remove(new Rank(count, id));
+                return updated;
+            });
+        }
+    }
+}
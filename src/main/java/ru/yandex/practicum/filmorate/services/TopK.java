@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.services;
+
+/**
+ * Ограниченная куча k лучших id по очкам: больше очков — лучше, при равенстве — меньший id.
+ * В корне — худший из отобранных, поэтому кандидат хуже него отсекается за O(1).
+ */
+final class TopK {
+
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    TopK(int k) {
+        ids = new long[k];
+        scores = new double[k];
+    }
+
+    void offer(long id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && better(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    /**
+     * Очки худшего из отобранных — порог, который должен превзойти новый кандидат.
+     */
+    double worstScore() {
+        return scores[0];
+    }
+
+    /**
+     * Забирает отобранное от лучшего к худшему в ids и scores (scores может быть null); куча пустеет.
+     */
+    void drainSorted(long[] outIds, float[] outScores) {
+        for (int n = size; n > 0; n--) {
+            outIds[n - 1] = ids[0];
+            if (outScores != null) outScores[n - 1] = (float) scores[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+    }
+
+    long[] sortedIds() {
+        long[] result = new long[size];
+        drainSorted(result, null);
+        return result;
+    }
+
+    private static boolean better(long id, double score, long otherId, double otherScore) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(ids[parent], scores[parent], ids[i], scores[i])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (better(ids[worst], scores[worst], ids[child], scores[child])) worst = child;
+            }
+            if (worst == i) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -2,16 +2,22 @@ package ru.yandex.practicum.filmorate.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.metrics.DomainMetrics;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.user.DeletedUser;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.validation.DomainValidator;
 import ru.yandex.practicum.filmorate.validation.UserValidator;
 
 import java.util.*;
+import java.util.stream.LongStream;
 
 @Slf4j
 @Service
@@ -19,9 +25,21 @@ public class UserService {
 
     private final UserStorage userStorage;
     private final DomainValidator<User> validator = new UserValidator();
-
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    private final PopularityLeaderboard leaderboard;
+    private final DomainMetrics metrics;
+    private final ApplicationEventPublisher events;
+    private final FriendGraph friendGraph;
+    private final CollectionVersions versions;
+
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, PopularityLeaderboard leaderboard,
+                       DomainMetrics metrics, ApplicationEventPublisher events, FriendGraph friendGraph,
+                       CollectionVersions versions) {
         this.userStorage = userStorage;
+        this.leaderboard = leaderboard;
+        this.friendGraph = friendGraph;
+        this.metrics = metrics;
+        this.events = events;
+        this.versions = versions;
     }
 
     public User create(User user) {
@@ -31,8 +49,9 @@ public class UserService {
 
         validator.validateCreate(user);
         User newUser = userStorage.create(user);
+        versions.usersChanged();
 
-        log.info("Создан пользователь через сервис: {}", newUser);
+        log.info("Создан пользователь через сервис: id={}", newUser.getId());
         return newUser;
     }
 
@@ -71,14 +90,20 @@ public class UserService {
             existing.setBirthday(newUser.getBirthday());
         }
 
-        log.info("Обновлён пользователь через сервис: {}", existing);
-        return userStorage.update(existing);
+        log.info("Обновлён пользователь через сервис: id={}, друзей={}", id, existing.getFriends().size());
+        User updated = userStorage.update(existing);
+        versions.usersChanged();
+        return updated;
     }
 
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
+    public Page<User> findPage(long after, int limit) {
+        return Page.of(userStorage.findPage(after, limit + 1), limit, User::getId);
+    }
+
 
     public User getUserById(Long id) {
         if (id == null) {
@@ -88,13 +113,37 @@ public class UserService {
         if (Objects.isNull(user)) {
             throw new NotFoundException(String.format("Не найден пользователь с id: %d", id));
         }
-        log.info("Запрос на вывод пользователя по id выполнен: {}", user);
+        log.info("Запрос на вывод пользователя по id выполнен: id={}, друзей={}", id, user.getFriends().size());
         return user;
     }
 
+    /**
+     * Версия пользователя для условного GET — один запрос по первичному ключу, без друзей.
+     */
+    public Version getUserVersion(Long id) {
+        return userStorage.getVersion(id);
+    }
+
+    public Version getListVersion() {
+        return versions.users();
+    }
+
+    public boolean isUserExist(Long id) {
+        return id != null && userStorage.isUserExist(id);
+    }
+
     public void deleteById(Long id) {
         log.info("Запрос на удаление пользователя по id: {}", id);
-        userStorage.deleteById(id);
+        // лайки пользователя удаляются каскадом в обход сервиса фильмов — снимаем их с рейтинга сами,
+        // по одному с каждого лайкнутого фильма, а не перечитывая счётчики всех фильмов.
+        // Какие это фильмы и у кого он был в друзьях, хранилище читает в транзакции удаления;
+        // к возврату она уже зафиксирована, и события ниже публикуются после коммита
+        DeletedUser deleted = leaderboard.withdrawLikes(() -> userStorage.deleteById(id), DeletedUser::likedFilmIds);
+        versions.usersChanged();
+        events.publishEvent(FilmEvent.catalogChanged());
+        events.publishEvent(LikeEvent.userDeleted(id));
+        // он же каскадом пропал из чужих списков друзей — их правим так же, как при deleteFriend
+        friendGraph.removeUser(id, deleted.friendedBy());
     }
 
     public void addFriend(Long userId, Long friendId) {
@@ -111,6 +160,9 @@ public class UserService {
         if (update1) {
             userStorage.setFriendConnection(userId, friendId, FriendshipStatus.CONFIRMED);
             userStorage.update(user);
+            versions.usersChanged();
+            friendGraph.addFriend(userId, friendId);
+            metrics.friendAdded();
         }
 
         log.info("Пользователь {}, добавил в друзья пользователя {}", user.getId(), friend.getId());
@@ -130,6 +182,9 @@ public class UserService {
         if (update1) {
             userStorage.removeFriendConnection(userId, friendId);
             userStorage.update(user);
+            versions.usersChanged();
+            friendGraph.removeFriend(userId, friendId);
+            metrics.friendRemoved();
         }
 
         log.info("Пользователь {}, удалил из друзей пользователя {}", user.getId(), friend.getId());
@@ -137,27 +192,30 @@ public class UserService {
 
     public List<User> getFriends(Long userId) {
         log.info("Запрос на вывод всех друзей пользователя {}", userId);
-        return userStorage.getById(userId).getFriends()
-                .stream()
-                .map(userStorage::getById)
-                .toList();
+        return userStorage.getFriends(userId);
     }
 
-    public List<User> getCommonFriends(Long userid, Long otherUserId) {
-        User user = userStorage.getById(userid);
-        User otherUser = userStorage.getById(otherUserId);
+    /**
+     * Рекомендации друзей: пользователи с наибольшим числом общих друзей, кроме уже добавленных.
+     */
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        if (!userStorage.isUserExist(userId)) {
+            throw new NotFoundException(String.format("Не найден пользователь с id: %d", userId));
+        }
+        long[] ids = friendGraph.suggestions(userId, limit);
+        log.info("Запрос рекомендаций друзей пользователя {}: найдено {}", userId, ids.length);
+        return userStorage.findByIds(LongStream.of(ids).boxed().toList());
+    }
 
-        Set<Long> commonFriends = new HashSet<>(user.getFriends());
-        commonFriends.retainAll(otherUser.getFriends());
+    public List<User> getCommonFriends(Long userid, Long otherUserId) {
+        List<User> commonFriends = userStorage.getCommonFriends(userid, otherUserId);
 
         if (commonFriends.isEmpty()) {
             throw new NotFoundException("У пользователей нет общих друзей!");
         }
 
         log.info("Запрос на вывод общих друзей пользователя {} и {}", userid, otherUserId);
-        return commonFriends.stream()
-                .map(userStorage::getById)
-                .toList();
+        return commonFriends;
     }
 }
 
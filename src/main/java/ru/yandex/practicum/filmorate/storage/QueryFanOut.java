@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Параллельный запуск независимых подзапросов одного агрегата (фильм, его лайки и жанры)
+ * с ожиданием всех, общим таймаутом и отменой оставшихся при первой ошибке.
+ * <p>
+ * Первая подзадача всегда выполняется в вызывающем потоке. Остальные уходят в отдельные
+ * потоки (виртуальные при spring.threads.virtual.enabled=true), только пока есть свободное
+ * разрешение: их число ограничено, чтобы параллельные запросы не выбирали весь пул соединений.
+ * Без разрешения подзадача выполняется в вызывающем потоке — как раньше, последовательно.
+ * Внутри транзакции всё выполняется последовательно: соединение транзакции привязано к потоку.
+ */
+@Component
+public class QueryFanOut implements DisposableBean {
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    @Autowired
+    public QueryFanOut(Environment environment,
+                       // не больше половины пула Hikari (по умолчанию 10 соединений)
+                       @Value("${filmorate.fan-out.max-parallel:4}") int maxParallel,
+                       @Value("${filmorate.fan-out.timeout:5s}") Duration timeout) {
+        this(defaultExecutor(environment, maxParallel), maxParallel, timeout);
+    }
+
+    public QueryFanOut(Executor executor, int maxParallel, Duration timeout) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxParallel);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Всё в вызывающем потоке — для сборки хранилищ без Spring и сравнения в бенчмарках.
+     */
+    public static QueryFanOut sequential() {
+        return new QueryFanOut(Runnable::run, 0, Duration.ZERO);
+    }
+
+    public void run(Runnable... tasks) {
+        if (tasks.length < 2 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+
+        List<Forked> forked = new ArrayList<>(tasks.length - 1);
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            for (int i = 1; i < tasks.length; i++) {
+                if (permits.tryAcquire()) {
+                    Forked task = new Forked(tasks[i]);
+                    forked.add(task);
+                    executor.execute(task);
+                } else {
+                    tasks[i].run();
+                }
+            }
+            tasks[0].run();
+            for (Forked task : forked) {
+                join(task, deadline);
+            }
+        } finally {
+            // после успешного join это no-op; при ошибке не начатые подзадачи не запустятся,
+            // а запущенные доработают вхолостую — прерывать поток посреди JDBC-вызова нельзя
+            for (Forked task : forked) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static void join(Forked task, long deadline) {
+        try {
+            task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Подзапросы не уложились в таймаут");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Ожидание подзапросов прервано");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    private static Executor defaultExecutor(Environment environment, int maxParallel) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fan-out-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        // платформенные потоки дороги в создании — держим небольшой пул под число разрешений
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fan-out-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(Math.max(1, maxParallel), threadFactory);
+    }
+
+    // разрешение возвращается, когда поток пула действительно освободился: отменённая по таймауту
+    // подзадача ещё держит соединение, и пока её JDBC-вызов идёт, новый подзапрос в пул не уйдёт.
+    // Отменённая до старта подзадача тоже доходит до run() и сразу возвращает разрешение
+    private final class Forked extends FutureTask<Void> {
+
+        Forked(Runnable task) {
+            super(task, null);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Version;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Аналог updated_at для хранилищ в памяти: время последнего изменения каждой записи.
+ * <p>
+ * Метки строго возрастают с шагом не меньше микросекунды — два изменения подряд не получат одну версию.
+ * Отмечать изменение нужно после записи данных: тогда читатель, взявший версию до чтения данных,
+ * может получить только более старую версию, чем данные, но не наоборот.
+ */
+public class VersionClock {
+
+    private final String kind;
+    private final Map<Long, Instant> modified = new ConcurrentHashMap<>();
+    private final AtomicLong lastMicros = new AtomicLong();
+
+    public VersionClock(String kind) {
+        this.kind = kind;
+    }
+
+    public void touch(long id) {
+        modified.put(id, next());
+    }
+
+    public void forget(long id) {
+        modified.remove(id);
+    }
+
+    /**
+     * Версия записи; null, если запись не отмечалась.
+     */
+    public Version of(long id) {
+        Instant at = modified.get(id);
+        return at == null ? null : Version.of(kind, id, at);
+    }
+
+    private Instant next() {
+        long now = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        long micros = lastMicros.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
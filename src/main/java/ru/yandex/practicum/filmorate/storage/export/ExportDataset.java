@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage.export;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Таблицы, доступные для выгрузки. Строки идут по возрастанию ключа, курсор after — значения
+ * всех колонок ключа последней полученной строки: выгрузка продолжается со строк, у которых
+ * ключ больше. У связующих таблиц ключ составной, и сравнение идёт по строке значений
+ * (film_id, user_id) &gt; (?, ?) — его обслуживает первичный ключ.
+ */
+public enum ExportDataset {
+
+    FILMS("films", List.of("id"), List.of("id", "name", "description", "release_date", "duration", "mpa_id")),
+    FILM_GENRES("film_genres", List.of("film_id", "genre_id"), List.of("film_id", "genre_id")),
+    FILM_LIKES("film_likes", List.of("film_id", "user_id"), List.of("film_id", "user_id")),
+    USERS("users", List.of("id"), List.of("id", "email", "login", "name", "birthday")),
+    FRIENDSHIPS("friendships", List.of("user_id", "friend_id"), List.of("user_id", "friend_id", "status_id"));
+
+    private final String table;
+    private final List<String> key;
+    private final List<String> columns;
+    private final String sql;
+
+    ExportDataset(String table, List<String> key, List<String> columns) {
+        this.table = table;
+        this.key = key;
+        this.columns = columns;
+        String keyColumns = String.join(", ", key);
+        String after = key.size() == 1
+                ? keyColumns + " > ?"
+                : "(" + keyColumns + ") > (" + String.join(", ", Collections.nCopies(key.size(), "?")) + ")";
+        // комментарий в начале запроса — его имя в метриках filmorate.sql (см. MeteredJdbcTemplate)
+        this.sql = "/* export." + table + " */ SELECT " + String.join(", ", columns)
+                + " FROM " + table + " WHERE " + after + " ORDER BY " + keyColumns;
+    }
+
+    public static Optional<ExportDataset> byName(String name) {
+        for (ExportDataset dataset : values()) {
+            if (dataset.table.equals(name.toLowerCase(Locale.ROOT))) return Optional.of(dataset);
+        }
+        return Optional.empty();
+    }
+
+    public String table() {
+        return table;
+    }
+
+    /**
+     * Колонки ключа — из них и состоит курсор after.
+     */
+    public List<String> key() {
+        return key;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    String sql() {
+        return sql;
+    }
+}
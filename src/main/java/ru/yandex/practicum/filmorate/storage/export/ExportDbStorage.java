@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.export;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+
+/**
+ * Построчное чтение таблиц для выгрузки: forward-only курсор с fetch size, строки
+ * передаются дальше по одной и нигде не копятся.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportDbStorage {
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Передаёт строки таблицы с ключом больше after (по значению на колонку ключа). Массив значений переиспользуется между строками.
+     * Транзакция нужна Postgres: без неё драйвер игнорирует fetch size и читает весь результат сразу.
+     */
+    @Transactional(readOnly = true)
+    public void export(ExportDataset dataset, long[] after, Consumer<Object[]> consumer) {
+        Object[] row = new Object[dataset.columns().size()];
+        RowCallbackHandler handler = rs -> {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            consumer.accept(row);
+        };
+        jdbc.query(dataset.sql(), ps -> {
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            for (int i = 0; i < after.length; i++) {
+                ps.setLong(i + 1, after[i]);
+            }
+        }, handler);
+    }
+}
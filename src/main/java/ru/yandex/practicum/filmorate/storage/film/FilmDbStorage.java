@@ -1,25 +1,59 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
-
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository("filmDbStorage")
-@RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
 
     private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
     private final FilmRowMapper filmRowMapper;
+    private final QueryFanOut fanOut;
+    // метаданные таблицы читаются при первой вставке и дальше переиспользуются
+    private final SimpleJdbcInsert filmInsert;
+    // пакетная вставка с возвратом id; текст запроса виден замеру (см. MeteredJdbcTemplate)
+    private final PreparedStatementCreatorFactory filmBatchInsert;
+    // выбирает вставку лайка без конфликта
+    private final boolean postgres;
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+
+    private volatile ReferenceData referenceData;
+
+    // потоковое чтение: размер порции курсора и пачки, для которой догружаются лайки/жанры
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
 
+    // комментарий в начале запроса — его имя в метриках filmorate.sql (см. MeteredJdbcTemplate)
     private static final String SQL_SELECT_FILM_BASE = """
             SELECT f.id, f.name, f.description, f.release_date, f.duration,
                    m.id AS mpa_id, m.name AS mpa_name
@@ -27,15 +61,64 @@ public class FilmDbStorage implements FilmStorage {
             JOIN mpa m ON m.id = f.mpa_id
             """;
 
-    private static final String SQL_FIND_ALL_FILMS = SQL_SELECT_FILM_BASE + " ORDER BY f.id";
+    private static final String SQL_FIND_ALL_FILMS = "/* film.findAll */ " + SQL_SELECT_FILM_BASE + " ORDER BY f.id";
+
+    private static final String SQL_FIND_FILM_BY_ID = "/* film.findById */ " + SQL_SELECT_FILM_BASE + " WHERE f.id = ?";
+
+    private static final String SQL_FIND_FILMS_PAGE = "/* film.findPage */ " + SQL_SELECT_FILM_BASE + " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+
+    private static final String SQL_FIND_FILMS_BY_IDS = "/* film.findByIds */ " + SQL_SELECT_FILM_BASE + " WHERE f.id IN (:ids)";
+
+    private static final String SQL_COUNT_LIKES_PER_FILM =
+            "/* film.countLikesPerFilm */ SELECT id, likes_count FROM films";
+
+    // forEachLike обещает порядок (film_id, user_id) — свой тег, чтобы сортирующий обход не сливался с film.allLikes
+    private static final String SQL_FIND_ALL_LIKES_ORDERED = """
+            /* film.allLikesOrdered */
+            SELECT film_id, user_id
+            FROM film_likes
+            ORDER BY film_id, user_id
+            """;
+
+    private static final String SQL_FIND_ALL_TEXTS =
+            "/* film.allTexts */ SELECT id, name, description FROM films ORDER BY id";
+
+    // фильтр — равенство по началу индекса, ORDER BY — все его столбцы: строки идут из индекса
+    // уже в нужном порядке, и чтение останавливается на LIMIT, сколько бы фильмов ни было в каталоге
+    private static final String SQL_FIND_POPULAR_IDS_BY_YEAR = """
+            /* film.popularByYear */
+            SELECT id
+            FROM films
+            WHERE release_year = ?
+            ORDER BY release_year, likes_count DESC, id
+            LIMIT ?
+            """;
 
-    private static final String SQL_FIND_FILM_BY_ID = SQL_SELECT_FILM_BASE + " WHERE f.id = ?";
+    private static final String SQL_FIND_POPULAR_IDS_BY_GENRE = """
+            /* film.popularByGenre */
+            SELECT film_id
+            FROM film_genres
+            WHERE genre_id = ?
+            ORDER BY genre_id, likes_count DESC, film_id
+            LIMIT ?
+            """;
+
+    private static final String SQL_FIND_POPULAR_IDS_BY_GENRE_AND_YEAR = """
+            /* film.popularByGenreAndYear */
+            SELECT film_id
+            FROM film_genres
+            WHERE genre_id = ? AND release_year = ?
+            ORDER BY genre_id, release_year, likes_count DESC, film_id
+            LIMIT ?
+            """;
 
     private static final String SQL_LOAD_LIKES_BY_FILM_ID = """
+                /* film.likesByFilm */
                 SELECT user_id FROM film_likes WHERE film_id = ?
             """;
 
     private static final String SQL_LOAD_GENRES_BY_FILM_ID = """
+                /* film.genresByFilm */
                 SELECT g.id AS genre_id, g.name AS genre_name
                 FROM film_genres fg
                 JOIN genres g ON g.id = fg.genre_id
@@ -43,43 +126,126 @@ public class FilmDbStorage implements FilmStorage {
                 ORDER BY g.id
             """;
 
+    private static final String SQL_LOAD_ALL_LIKES = "/* film.allLikes */ SELECT film_id, user_id FROM film_likes";
+
+    private static final String SQL_LOAD_LIKES_BY_FILM_IDS = """
+                /* film.likesByFilms */
+                SELECT film_id, user_id FROM film_likes WHERE film_id IN (:ids)
+            """;
+
+    private static final String SQL_LOAD_ALL_GENRES = """
+                /* film.allGenres */
+                SELECT fg.film_id, g.id AS genre_id, g.name AS genre_name
+                FROM film_genres fg
+                JOIN genres g ON g.id = fg.genre_id
+                ORDER BY fg.film_id, g.id
+            """;
+
+    private static final String SQL_LOAD_GENRES_BY_FILM_IDS = """
+                /* film.genresByFilms */
+                SELECT fg.film_id, g.id AS genre_id, g.name AS genre_name
+                FROM film_genres fg
+                JOIN genres g ON g.id = fg.genre_id
+                WHERE fg.film_id IN (:ids)
+                ORDER BY fg.film_id, g.id
+            """;
+
     private static final String SQL_UPDATE_FILM = """
+            /* film.update */
             UPDATE films
                SET name = ?,
                    description = ?,
                    release_date = ?,
+                   release_year = ?,
                    duration = ?,
                    mpa_id = ?,
-                   updated_at = CURRENT_TIMESTAMP
+                   updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
              WHERE id = ?
             """;
 
-    private static final String SQL_DELETE_FILM_BY_ID = "DELETE FROM films WHERE id = ?";
+    // updated_at — версия фильма для ETag, поэтому строго растёт: два изменения
+    // в одну микросекунду всё равно дают разные версии. Лайки тоже видны в ответе и тоже её меняют
+    private static final String SQL_ADJUST_LIKES = """
+            /* film.adjustLikes */
+            UPDATE films
+               SET likes_count = likes_count + ?,
+                   updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
+             WHERE id = ?
+            """;
 
-    private static final String SQL_DELETE_FILM_GENRES = "DELETE FROM film_genres WHERE film_id = ?";
-    private static final String SQL_MERGE_FILM_GENRE = """
-            MERGE INTO film_genres (film_id, genre_id)
-            KEY (film_id, genre_id)
-            VALUES (?, ?)
+    private static final String SQL_ADJUST_GENRE_LIKES =
+            "/* film.adjustGenreLikes */ UPDATE film_genres SET likes_count = likes_count + ? WHERE film_id = ?";
+
+    private static final String SQL_FILM_VERSION =
+            "/* film.version */ SELECT COALESCE(updated_at, created_at) FROM films WHERE id = ?";
+
+    private static final String SQL_INSERT_FILM = """
+            /* film.insert */
+            INSERT INTO films (name, description, release_date, release_year, duration, mpa_id)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String SQL_DELETE_FILM_BY_ID = "/* film.delete */ DELETE FROM films WHERE id = ?";
+
+    private static final String SQL_DELETE_FILM_GENRES = "/* film.deleteGenres */ DELETE FROM film_genres WHERE film_id = ?";
+    // счётчик лайков и год строка жанра берёт из строки фильма той же транзакции
+    private static final String SQL_INSERT_FILM_GENRE = """
+            /* film.insertGenre */
+            INSERT INTO film_genres (film_id, genre_id, likes_count, release_year)
+            SELECT id, ?, likes_count, release_year FROM films WHERE id = ?
             """;
 
-    private static final String SQL_GET_GENRE_BY_ID = "SELECT id, name FROM genres WHERE id = ?";
-    private static final String SQL_SELECT_ALL_GENRES = "SELECT id, name FROM genres ORDER BY id";
-    private static final String SQL_COUNT_GENRE_BY_ID = "SELECT COUNT(*) FROM genres WHERE id = ?";
+    private static final String SQL_SELECT_ALL_GENRES = "/* genre.findAll */ SELECT id, name FROM genres ORDER BY id";
 
-    private static final String SQL_GET_MPA_BY_ID = "SELECT id, name FROM mpa WHERE id = ?";
-    private static final String SQL_SELECT_ALL_MPA = "SELECT id, name FROM mpa ORDER BY id";
-    private static final String SQL_COUNT_MPA_BY_ID = "SELECT COUNT(*) FROM mpa WHERE id = ?";
+    private static final String SQL_SELECT_ALL_MPA = "/* mpa.findAll */ SELECT id, name FROM mpa ORDER BY id";
 
-    private static final String SQL_DELETE_FILM_LIKES =
-            "DELETE FROM film_likes WHERE film_id = ?";
+    private static final String SQL_COUNT_FILM_BY_ID = "/* film.exists */ SELECT COUNT(*) FROM films WHERE id = ?";
 
-    private static final String SQL_MERGE_FILM_LIKE = """
-            MERGE INTO film_likes (film_id, user_id)
-            KEY (film_id, user_id)
+    // Postgres ждёт коммита параллельной вставки той же пары и пропускает строку, не обрывая транзакцию
+    private static final String SQL_INSERT_FILM_LIKE_ON_CONFLICT = """
+            /* film.addLike */
+            INSERT INTO film_likes (film_id, user_id)
             VALUES (?, ?)
+            ON CONFLICT (film_id, user_id) DO NOTHING
+            """;
+
+    private static final String SQL_INSERT_FILM_LIKE_IF_ABSENT = """
+            /* film.addLike */
+            INSERT INTO film_likes (film_id, user_id)
+            SELECT ?, ?
+             WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)
             """;
 
+    private static final String SQL_DELETE_FILM_LIKE =
+            "/* film.removeLike */ DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+
+    private static final String SQL_INSERT_FILM_LIKE =
+            "/* film.insertLike */ INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+
+    public FilmDbStorage(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc, FilmRowMapper filmRowMapper,
+                         QueryFanOut fanOut) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.filmRowMapper = filmRowMapper;
+        this.fanOut = fanOut;
+        this.filmBatchInsert = new PreparedStatementCreatorFactory(SQL_INSERT_FILM);
+        filmBatchInsert.setGeneratedKeysColumnNames("id");
+        this.postgres = "PostgreSQL".equals(jdbc.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+        this.filmInsert = new SimpleJdbcInsert(jdbc)
+                .withTableName("films")
+                .usingGeneratedKeyColumns("id")
+                .usingColumns(
+                        "name",
+                        "description",
+                        "release_date",
+                        "release_year",
+                        "duration",
+                        "mpa_id",
+                        "likes_count"
+                );
+    }
+
     //CRUD
 
     @Override
@@ -87,42 +253,105 @@ public class FilmDbStorage implements FilmStorage {
         List<Film> films = jdbc.query(SQL_FIND_ALL_FILMS, filmRowMapper);
         if (films.isEmpty()) return films;
 
-        for (Film film : films) {
-            Long id = film.getId();
-
-            // лайки
-            jdbc.query(SQL_LOAD_LIKES_BY_FILM_ID,
-                    (rs, rn) -> {
-                        film.getLikes().add(rs.getLong("user_id"));
-                        return null;
-                    },
-                    id);
-
-            // жанры
-            jdbc.query(SQL_LOAD_GENRES_BY_FILM_ID,
-                    (rs, rn) -> {
-                        film.getGenres().add(new Genre(rs.getLong("genre_id"), rs.getString("genre_name")));
-                        return null;
-                    },
-                    id);
-        }
+        // весь каталог: лайки и жанры читаются целиком, без IN-списка
+        Map<Long, Film> byId = indexById(films);
+        jdbc.query(SQL_LOAD_ALL_LIKES, likesCollector(byId));
+        jdbc.query(SQL_LOAD_ALL_GENRES, genresCollector(byId));
         return films;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Film> consumer) {
+        List<Film> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        RowCallbackHandler collector = rs -> {
+            chunk.add(filmRowMapper.mapRow(rs, rs.getRow()));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                hydrate(chunk).forEach(consumer);
+                chunk.clear();
+            }
+        };
+        jdbc.query(SQL_FIND_ALL_FILMS, ps -> ps.setFetchSize(STREAM_FETCH_SIZE), collector);
+        hydrate(chunk).forEach(consumer);
+    }
 
     @Override
-    public Film getById(Long id) {
-        Film film = jdbc.query(SQL_FIND_FILM_BY_ID, filmRowMapper, id).stream().findFirst().orElseThrow(() -> new NotFoundException("Фильм id=" + id + " не найден"));
+    public List<Film> findPage(long after, int limit) {
+        return hydrate(jdbc.query(SQL_FIND_FILMS_PAGE, filmRowMapper, after, limit));
+    }
 
-        List<Long> likeUserIds = jdbc.query(SQL_LOAD_LIKES_BY_FILM_ID, (rs, rn) -> rs.getLong("user_id"), id);
-        film.getLikes().addAll(likeUserIds);
+    @Override
+    public List<Long> findPopularIds(int count, Long genreId, Integer year) {
+        if (genreId == null && year == null) {
+            throw new IllegalArgumentException("Без фильтров популярные фильмы берутся из PopularityLeaderboard");
+        }
+        if (genreId == null) return jdbc.queryForList(SQL_FIND_POPULAR_IDS_BY_YEAR, Long.class, year, count);
+        if (year == null) return jdbc.queryForList(SQL_FIND_POPULAR_IDS_BY_GENRE, Long.class, genreId, count);
+        return jdbc.queryForList(SQL_FIND_POPULAR_IDS_BY_GENRE_AND_YEAR, Long.class, genreId, year, count);
+    }
 
-        List<Genre> genres = jdbc.query(SQL_LOAD_GENRES_BY_FILM_ID, (rs, rn) -> new Genre(rs.getLong("genre_id"), rs.getString("genre_name")), id);
-        film.setGenres(new LinkedHashSet<>(genres));
+    @Override
+    public List<Film> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, Film> byId = indexById(hydrate(namedJdbc.query(SQL_FIND_FILMS_BY_IDS, Map.of("ids", ids), filmRowMapper)));
+        List<Film> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            Film film = byId.get(id);
+            if (film != null) result.add(film);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachLikeCount(BiConsumer<Long, Integer> consumer) {
+        jdbc.query(SQL_COUNT_LIKES_PER_FILM,
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong("id"), rs.getInt("likes_count")));
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        jdbc.query(SQL_FIND_ALL_LIKES_ORDERED, ps -> ps.setFetchSize(STREAM_FETCH_SIZE), (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2)));
+    }
+
+    @Override
+    public void forEachText(TextConsumer consumer) {
+        jdbc.query(SQL_FIND_ALL_TEXTS, ps -> ps.setFetchSize(STREAM_FETCH_SIZE), (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getString(2), rs.getString(3)));
+    }
 
+    @Override
+    public Film getById(Long id) {
+        List<Film> found = new ArrayList<>(1);
+        LongHashSet likes = new LongHashSet();
+        List<Genre> genres = new ArrayList<>();
+
+        // три запроса независимы — идут параллельно, лайки и жанры фильма, которого нет, просто пусты
+        fanOut.run(
+                () -> found.addAll(jdbc.query(SQL_FIND_FILM_BY_ID, filmRowMapper, id)),
+                () -> jdbc.query(SQL_LOAD_LIKES_BY_FILM_ID, (RowCallbackHandler) rs -> likes.add(rs.getLong("user_id")), id),
+                () -> genres.addAll(jdbc.query(SQL_LOAD_GENRES_BY_FILM_ID, (rs, rn) -> new Genre(rs.getLong("genre_id"), rs.getString("genre_name")), id)));
+
+        Film film = found.stream().findFirst().orElseThrow(() -> new NotFoundException("Фильм id=" + id + " не найден"));
+        film.setLikes(likes);
+        film.setGenres(new LinkedHashSet<>(genres));
         return film;
     }
 
+    @Override
+    public boolean isFilmExist(Long id) {
+        Integer cnt = jdbc.queryForObject(SQL_COUNT_FILM_BY_ID, Integer.class, id);
+        return cnt != null && cnt > 0;
+    }
+
+    @Override
+    public Version getVersion(Long id) {
+        List<Timestamp> found = jdbc.queryForList(SQL_FILM_VERSION, Timestamp.class, id);
+        if (found.isEmpty()) {
+            throw new NotFoundException("Film id=" + id + " not found");
+        }
+        return Version.of("film", id, found.get(0).toInstant());
+    }
+
     @Override
     @Transactional
     public Film create(Film film) {
@@ -130,47 +359,97 @@ public class FilmDbStorage implements FilmStorage {
                 ? film.getMpa().getId()
                 : 1L;
 
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbc)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("id")
-                .usingColumns(
-                        "name",
-                        "description",
-                        "release_date",
-                        "duration",
-                        "mpa_id"
-                );
-
         Map<String, Object> params = new HashMap<>();
         params.put("name", film.getName());
         params.put("description", film.getDescription());
         params.put("release_date", film.getReleaseDate());
+        params.put("release_year", film.getReleaseDate().getYear());
         params.put("duration", film.getDuration());
         params.put("mpa_id", mpaId);
+        params.put("likes_count", film.getLikes() == null ? 0 : film.getLikes().size());
 
-        Number key = insert.executeAndReturnKey(params);
+        Number key = filmInsert.executeAndReturnKey(params);
         film.setId(key.longValue());
+        film.setMpa(getMpaById(mpaId));
+        film.setGenres(canonicalGenres(film.getGenres()));
+        if (film.getLikes() == null) film.setLikes(new LongHashSet());
 
-        upsertGenres(film);
-        upsertLikes(film);
+        insertGenres(film);
+        insertLikes(film);
 
-        return getById(film.getId());
+        // всё, что вернул бы getById, уже известно — повторный SELECT не нужен
+        return film;
     }
 
+    /**
+     * Фильмы пишутся одним пакетом INSERT с возвратом ключей, жанры всех фильмов — вторым.
+     */
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) return films;
+        for (Film film : films) {
+            Long mpaId = (film.getMpa() != null && film.getMpa().getId() != null) ? film.getMpa().getId() : 1L;
+            film.setMpa(getMpaById(mpaId));
+            film.setGenres(canonicalGenres(film.getGenres()));
+            film.setLikes(new LongHashSet());
+        }
+
+        GeneratedKeyHolder keys = new GeneratedKeyHolder(new ArrayList<>(films.size()));
+        jdbc.batchUpdate(filmBatchInsert.newPreparedStatementCreator(List.of()),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getReleaseDate().getYear());
+                        ps.setInt(5, film.getDuration());
+                        ps.setLong(6, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        List<long[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) generated.get(i).values().iterator().next()).longValue());
+            for (Genre genre : film.getGenres()) {
+                genreRows.add(new long[]{film.getId(), genre.getId()});
+            }
+        }
+        jdbc.batchUpdate(SQL_INSERT_FILM_GENRE, genreRows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row[1]);
+            ps.setLong(2, row[0]);
+        });
+        return films;
+    }
+
+    /**
+     * Лайки здесь не перезаписываются: они меняются только через addLike/removeLike.
+     */
     @Override
     @Transactional
     public Film update(Film film) {
         Long mpaId = (film.getMpa() != null && film.getMpa().getId() != null) ? film.getMpa().getId() : 1L;
 
-        int updated = jdbc.update(SQL_UPDATE_FILM, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), mpaId, film.getId());
+        int updated = jdbc.update(SQL_UPDATE_FILM, film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getReleaseDate().getYear(), film.getDuration(), mpaId, film.getId());
         if (updated == 0) {
             throw new NotFoundException("Film id=" + film.getId() + " not found");
         }
+        film.setMpa(getMpaById(mpaId));
+        film.setGenres(canonicalGenres(film.getGenres()));
 
         jdbc.update(SQL_DELETE_FILM_GENRES, film.getId());
-        upsertGenres(film);
-        upsertLikes(film);
-        return getById(film.getId());
+        insertGenres(film);
+        return film;
     }
 
     @Override
@@ -180,55 +459,177 @@ public class FilmDbStorage implements FilmStorage {
         jdbc.update(SQL_DELETE_FILM_BY_ID, id);
     }
 
+    //LIKES
+
+    // строка фильма блокируется последней, уже после вставки лайка, и только до коммита:
+    // лайки популярного фильма встают в очередь лишь на обновлении счётчиков. Счётчики фильма
+    // и его жанров меняются в одной транзакции с тем же порядком блокировок, что и в update(),
+    // поэтому пересозданные там строки жанров не получают лайк дважды
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        boolean added = postgres
+                ? jdbc.update(SQL_INSERT_FILM_LIKE_ON_CONFLICT, filmId, userId) > 0
+                : jdbc.execute(SQL_INSERT_FILM_LIKE_IF_ABSENT,
+                        (PreparedStatementCallback<Integer>) ps -> insertLikeIfAbsent(ps, filmId, userId)) > 0;
+        if (added) adjustLikes(filmId, 1);
+        return added;
+    }
+
+    // у H2 нет вставки без конфликта: и NOT EXISTS, и MERGE падают на паре, которую параллельный запрос
+    // вставил, но ещё не закоммитил. Вставка идёт в точке сохранения — откат к ней оставляет транзакцию живой
+    private static int insertLikeIfAbsent(PreparedStatement ps, long filmId, long userId) throws SQLException {
+        Connection con = ps.getConnection();
+        Savepoint savepoint = con.getAutoCommit() ? null : con.setSavepoint();
+        try {
+            ps.setLong(1, filmId);
+            ps.setLong(2, userId);
+            ps.setLong(3, filmId);
+            ps.setLong(4, userId);
+            int inserted = ps.executeUpdate();
+            if (savepoint != null) con.releaseSavepoint(savepoint);
+            return inserted;
+        } catch (SQLException e) {
+            if (!SQL_STATE_UNIQUE_VIOLATION.equals(e.getSQLState())) throw e;
+            if (savepoint != null) con.rollback(savepoint);
+            return 0;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
+        boolean removed = jdbc.update(SQL_DELETE_FILM_LIKE, filmId, userId) > 0;
+        if (removed) adjustLikes(filmId, -1);
+        return removed;
+    }
+
+    private void adjustLikes(long filmId, int delta) {
+        jdbc.update(SQL_ADJUST_LIKES, delta, filmId);
+        jdbc.update(SQL_ADJUST_GENRE_LIKES, delta, filmId);
+    }
+
     //GENRES / MPA
 
+    /**
+     * Справочники почти не меняются, поэтому читаются из БД один раз при старте
+     * (и по явному вызову), а все проверки и поиск идут по снимку в памяти.
+     */
+    @Override
+    @PostConstruct
+    public void refreshReferenceData() {
+        List<Genre> genres = jdbc.query(SQL_SELECT_ALL_GENRES, (rs, rn) -> new Genre(rs.getLong("id"), rs.getString("name")));
+        List<Mpa> mpa = jdbc.query(SQL_SELECT_ALL_MPA, (rs, rn) -> new Mpa(rs.getLong("id"), rs.getString("name")));
+        referenceData = ReferenceData.of(genres, mpa);
+    }
+
     @Override
     public Genre getGenreById(Long id) {
-        List<Genre> list = jdbc.query(SQL_GET_GENRE_BY_ID, (rs, rn) -> new Genre(rs.getLong("id"), rs.getString("name")), id);
-        return list.stream().findFirst().orElseThrow(() -> new NotFoundException("Genre id=" + id + " not found"));
+        Genre genre = referenceData.genres().get(id);
+        if (genre == null) {
+            throw new NotFoundException("Genre id=" + id + " not found");
+        }
+        return genre;
     }
 
     @Override
     public Map<Long, Genre> getAllGenres() {
-        return jdbc.query(SQL_SELECT_ALL_GENRES, (rs, rn) -> new Genre(rs.getLong("id"), rs.getString("name"))).stream().collect(Collectors.toMap(Genre::getId, g -> g, (a, b) -> a, LinkedHashMap::new));
+        return referenceData.genres();
     }
 
     @Override
     public boolean isGenreExist(Long id) {
-        Integer cnt = jdbc.queryForObject(SQL_COUNT_GENRE_BY_ID, Integer.class, id);
-        return cnt != null && cnt > 0;
+        return referenceData.genres().containsKey(id);
     }
 
     @Override
     public Mpa getMpaById(Long id) {
-        List<Mpa> list = jdbc.query(SQL_GET_MPA_BY_ID, (rs, rn) -> new Mpa(rs.getLong("id"), rs.getString("name")), id);
-        return list.stream().findFirst().orElseThrow(() -> new NotFoundException("MPA id=" + id + " not found"));
+        Mpa mpa = referenceData.mpa().get(id);
+        if (mpa == null) {
+            throw new NotFoundException("MPA id=" + id + " not found");
+        }
+        return mpa;
     }
 
     @Override
     public Map<Long, Mpa> getAllMpa() {
-        return jdbc.query(SQL_SELECT_ALL_MPA, (rs, rn) -> new Mpa(rs.getLong("id"), rs.getString("name"))).stream().collect(Collectors.toMap(Mpa::getId, m -> m, (a, b) -> a, LinkedHashMap::new));
+        return referenceData.mpa();
     }
 
     @Override
     public boolean isMpaExist(Long id) {
-        Integer cnt = jdbc.queryForObject(SQL_COUNT_MPA_BY_ID, Integer.class, id);
-        return cnt != null && cnt > 0;
+        return referenceData.mpa().containsKey(id);
     }
 
     //helpers
-    private void upsertGenres(Film film) {
-        if (film.getGenres() == null || film.getGenres().isEmpty()) return;
-        for (Genre g : film.getGenres()) {
-            jdbc.update(SQL_MERGE_FILM_GENRE, film.getId(), g.getId());
-        }
+
+    /**
+     * Догружает лайки и жанры для набора фильмов двумя запросами (film_id IN (...)),
+     * независимо от количества фильмов. Порядок списка сохраняется.
+     */
+    private List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) return films;
+
+        Map<Long, Film> byId = indexById(films);
+        Map<String, Object> params = Map.of("ids", byId.keySet());
+        namedJdbc.query(SQL_LOAD_LIKES_BY_FILM_IDS, params, likesCollector(byId));
+        namedJdbc.query(SQL_LOAD_GENRES_BY_FILM_IDS, params, genresCollector(byId));
+        return films;
     }
 
-    private void upsertLikes(Film film) {
-        if (film.getLikes() == null) return;
-        jdbc.update(SQL_DELETE_FILM_LIKES, film.getId());
-        for (Long uid : film.getLikes()) {
-            jdbc.update(SQL_MERGE_FILM_LIKE, film.getId(), uid);
+    private static Map<Long, Film> indexById(List<Film> films) {
+        Map<Long, Film> byId = new HashMap<>(films.size() * 2);
+        for (Film film : films) {
+            byId.put(film.getId(), film);
         }
+        return byId;
+    }
+
+    private static RowCallbackHandler likesCollector(Map<Long, Film> byId) {
+        return rs -> {
+            Film film = byId.get(rs.getLong("film_id"));
+            if (film != null) film.getLikes().add(rs.getLong("user_id"));
+        };
+    }
+
+    private static RowCallbackHandler genresCollector(Map<Long, Film> byId) {
+        return rs -> {
+            Film film = byId.get(rs.getLong("film_id"));
+            if (film != null) film.getGenres().add(new Genre(rs.getLong("genre_id"), rs.getString("genre_name")));
+        };
+    }
+
+    /**
+     * Жанры из справочника, без дублей и по возрастанию id — как их отдаёт getById.
+     */
+    private LinkedHashSet<Genre> canonicalGenres(Set<Genre> genres) {
+        LinkedHashSet<Genre> result = new LinkedHashSet<>();
+        if (genres == null) return result;
+        genres.stream()
+                .map(g -> getGenreById(g.getId()))
+                .distinct()
+                .sorted(Comparator.comparing(Genre::getId))
+                .forEach(result::add);
+        return result;
+    }
+
+    private void insertGenres(Film film) {
+        if (film.getGenres().isEmpty()) return;
+        long filmId = film.getId();
+        jdbc.batchUpdate(SQL_INSERT_FILM_GENRE, new ArrayList<>(film.getGenres()), BATCH_SIZE,
+                (ps, genre) -> {
+                    ps.setLong(1, genre.getId());
+                    ps.setLong(2, filmId);
+                });
+    }
+
+    private void insertLikes(Film film) {
+        if (film.getLikes().isEmpty()) return;
+        long filmId = film.getId();
+        jdbc.batchUpdate(SQL_INSERT_FILM_LIKE, film.getLikes(), BATCH_SIZE,
+                (ps, userId) -> {
+                    ps.setLong(1, filmId);
+                    ps.setLong(2, userId);
+                });
     }
 }
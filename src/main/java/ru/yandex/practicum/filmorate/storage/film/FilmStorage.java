@@ -3,21 +3,97 @@ package ru.yandex.practicum.filmorate.storage.film;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Version;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    /**
+     * Создаёт фильмы одной транзакцией пакетными вставками и проставляет им id,
+     * канонические MPA и жанры. Лайки не переносятся — они ставятся только через addLike.
+     */
+    List<Film> createAll(List<Film> films);
+
+    /**
+     * Обновляет поля фильма и его жанры; лайки не трогает.
+     */
     Film update(Film film);
 
     void deleteById(Long id);
 
     Film getById(Long id);
 
+    boolean isFilmExist(Long id);
+
+    /**
+     * Версия фильма без чтения лайков и жанров; меняется при любом изменении, включая лайки.
+     */
+    Version getVersion(Long id);
+
     Collection<Film> findAll();
 
+    /**
+     * Отдаёт все фильмы по возрастанию id по одному, не собирая каталог в памяти.
+     */
+    void streamAll(Consumer<Film> consumer);
+
+    /**
+     * Keyset-страница: фильмы с id > after по возрастанию id, не больше limit.
+     */
+    List<Film> findPage(long after, int limit);
+
+    /**
+     * id самых популярных фильмов жанра и/или года выпуска: по убыванию лайков, при равенстве — по id.
+     * Фильтр, равный null, не применяется, но хотя бы один должен быть задан: без фильтров
+     * популярные фильмы берутся из PopularityLeaderboard.
+     */
+    List<Long> findPopularIds(int count, Long genreId, Integer year);
+
+    /**
+     * Фильмы с указанными id в порядке списка; отсутствующие id пропускаются.
+     */
+    List<Film> findByIds(List<Long> ids);
+
+    /**
+     * Передаёт число лайков каждого фильма, включая фильмы без лайков.
+     */
+    void forEachLikeCount(BiConsumer<Long, Integer> consumer);
+
+    /**
+     * Передаёт все лайки по возрастанию (filmId, userId), не собирая их в памяти.
+     */
+    void forEachLike(LikeConsumer consumer);
+
+    /**
+     * Передаёт id, название и описание всех фильмов по возрастанию id, без жанров и лайков.
+     */
+    void forEachText(TextConsumer consumer);
+
+    /**
+     * Ставит лайк; затрагивает одну строку film_likes.
+     *
+     * @return false, если лайк уже стоял
+     */
+    boolean addLike(Long filmId, Long userId);
+
+    /**
+     * Снимает лайк; затрагивает одну строку film_likes.
+     *
+     * @return false, если лайка не было
+     */
+    boolean removeLike(Long filmId, Long userId);
+
+    /**
+     * Перечитывает справочники жанров и MPA из источника.
+     */
+    void refreshReferenceData();
+
     Genre getGenreById(Long id);
 
     Map<Long, Genre> getAllGenres();
@@ -29,4 +105,14 @@ public interface FilmStorage {
     Map<Long, Mpa> getAllMpa();
 
     boolean isMpaExist(Long id);
+
+    @FunctionalInterface
+    interface LikeConsumer {
+        void accept(long filmId, long userId);
+    }
+
+    @FunctionalInterface
+    interface TextConsumer {
+        void accept(long filmId, String name, String description);
+    }
 }
\ No newline at end of file
@@ -6,17 +6,28 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.VersionClock;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
 @Qualifier("InMemoryFilmStorage")
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
-    private Long idCounter = 1L;
+    // хранимые экземпляры наружу не отдаются: запись кладёт копию, чтение возвращает копию.
+    // Поля хранимого фильма после публикации не меняются (update подменяет запись целиком),
+    // изменяемы только лайки — множество под собственным монитором, переживающее update.
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final AtomicLong idCounter = new AtomicLong(1);
+    private final VersionClock versions = new VersionClock("film");
     private final Map<Long, Genre> genres = new LinkedHashMap<>() {{
         put(1L, new Genre(1L, "Комедия"));
         put(2L, new Genre(2L, "Драма"));
@@ -36,51 +47,180 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     @Override
     public Film create(Film film) {
-        long id = idCounter++;
+        long id = idCounter.getAndIncrement();
         film.setId(id);
-        films.put(id, film);
-        log.info("Создан фильм: {}", film);
+        if (film.getLikes() == null) film.setLikes(new LongHashSet());
+        films.put(id, stored(film, new LongHashSet(film.getLikes())));
+        versions.touch(id);
+        log.info("Создан фильм id={}", id);
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        for (Film film : films) {
+            film.setLikes(new LongHashSet());
+            create(film);
+        }
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
         Long id = film.getId();
+        // лайки меняются только через addLike/removeLike: переносим множество из прежней записи
+        Film updated = id == null ? null
+                : films.computeIfPresent(id, (k, old) -> stored(film, old.getLikes()));
 
-        if (id == null || !films.containsKey(id)) {
+        if (updated == null) {
             throw new NotFoundException(String.format("Не найден фильм с id: %s", id));
-
         }
 
-        films.put(id, film);
-        log.info("Обновлён фильм: {}", film);
+        versions.touch(id);
+        film.setLikes(likesOf(updated));
+        log.info("Обновлён фильм id={}, лайков={}", id, film.getLikes().size());
         return film;
     }
 
     @Override
     public void deleteById(Long id) {
 
-        if (!films.containsKey(id)) {
+        if (films.remove(id) == null) {
             throw new NotFoundException(String.format("Не найден фильм с id: %s", id));
         }
+        versions.forget(id);
 
-        films.remove(id);
         log.info("Удалён фильм id={}", id);
     }
 
     @Override
     public Film getById(Long id) {
-        Film film = films.get(id);
+        return copy(getStored(id));
+    }
 
-        if (film == null) {
+    @Override
+    public boolean isFilmExist(Long id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public Version getVersion(Long id) {
+        Version version = versions.of(id);
+        if (version == null) {
             throw new NotFoundException(String.format("Не найден фильм с id: %s", id));
         }
-        return film;
+        return version;
     }
 
     @Override
     public Collection<Film> findAll() {
-        return new ArrayList<>(films.values());
+        List<Film> result = new ArrayList<>(films.size());
+        for (Film film : films.values()) {
+            result.add(copy(film));
+        }
+        return result;
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        films.values().stream()
+                .sorted(Comparator.comparing(Film::getId))
+                .map(InMemoryFilmStorage::copy)
+                .forEach(consumer);
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        return films.values().stream()
+                .filter(f -> f.getId() > after)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .map(InMemoryFilmStorage::copy)
+                .toList();
+    }
+
+    @Override
+    public List<Long> findPopularIds(int count, Long genreId, Integer year) {
+        if (genreId == null && year == null) {
+            throw new IllegalArgumentException("Без фильтров популярные фильмы берутся из PopularityLeaderboard");
+        }
+        // размер множества лайков фиксируем до сортировки: параллельные addLike
+        // не должны менять ключ сравнения посреди сортировки
+        return films.values().stream()
+                .filter(f -> year == null || f.getReleaseDate().getYear() == year)
+                .filter(f -> genreId == null || f.getGenres().stream().anyMatch(g -> genreId.equals(g.getId())))
+                .map(f -> Map.entry(f.getId(), likeCount(f)))
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public List<Film> findByIds(List<Long> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = films.get(id);
+            if (film != null) result.add(copy(film));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachLikeCount(BiConsumer<Long, Integer> consumer) {
+        films.forEach((id, film) -> consumer.accept(id, likeCount(film)));
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        for (Long filmId : new TreeSet<>(films.keySet())) {
+            Film film = films.get(filmId);
+            if (film == null) continue;
+            long[] users;
+            synchronized (film.getLikes()) {
+                users = film.getLikes().toLongArray();
+            }
+            Arrays.sort(users);
+            for (long userId : users) {
+                consumer.accept(filmId, userId);
+            }
+        }
+    }
+
+    @Override
+    public void forEachText(TextConsumer consumer) {
+        for (Long filmId : new TreeSet<>(films.keySet())) {
+            Film film = films.get(filmId);
+            if (film != null) consumer.accept(filmId, film.getName(), film.getDescription());
+        }
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        LongHashSet likes = getStored(filmId).getLikes();
+        boolean added;
+        synchronized (likes) {
+            added = likes.add(userId.longValue());
+        }
+        if (added) versions.touch(filmId);
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        LongHashSet likes = getStored(filmId).getLikes();
+        boolean removed;
+        synchronized (likes) {
+            removed = likes.remove(userId.longValue());
+        }
+        if (removed) versions.touch(filmId);
+        return removed;
+    }
+
+    @Override
+    public void refreshReferenceData() {
+        // справочники заданы в коде и не меняются
     }
 
     @Override
@@ -112,4 +252,46 @@ public class InMemoryFilmStorage implements FilmStorage {
     public boolean isMpaExist(Long id) {
         return mpa.containsKey(id);
     }
+
+    private Film getStored(Long id) {
+        Film film = films.get(id);
+
+        if (film == null) {
+            throw new NotFoundException(String.format("Не найден фильм с id: %s", id));
+        }
+        return film;
+    }
+
+    private static Film stored(Film source, LongHashSet likes) {
+        Film film = copy(source);
+        film.setLikes(likes);
+        return film;
+    }
+
+    private static Film copy(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(source.getMpa());
+        film.setGenres(new LinkedHashSet<>(source.getGenres()));
+        film.setLikes(likesOf(source));
+        return film;
+    }
+
+    private static LongHashSet likesOf(Film film) {
+        LongHashSet likes = film.getLikes();
+        synchronized (likes) {
+            return new LongHashSet(likes);
+        }
+    }
+
+    private static int likeCount(Film film) {
+        LongHashSet likes = film.getLikes();
+        synchronized (likes) {
+            return likes.size();
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок справочников жанров и рейтингов MPA (в порядке id).
+ * Заменяется целиком при перезагрузке, поэтому читается без блокировок.
+ */
+record ReferenceData(Map<Long, Genre> genres, Map<Long, Mpa> mpa) {
+
+    static ReferenceData of(List<Genre> genres, List<Mpa> mpa) {
+        Map<Long, Genre> genresById = new LinkedHashMap<>();
+        genres.forEach(g -> genresById.put(g.getId(), g));
+        Map<Long, Mpa> mpaById = new LinkedHashMap<>();
+        mpa.forEach(m -> mpaById.put(m.getId(), m));
+        return new ReferenceData(Collections.unmodifiableMap(genresById), Collections.unmodifiableMap(mpaById));
+    }
+}
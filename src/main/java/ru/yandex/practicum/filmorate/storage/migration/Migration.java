@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Скрипт миграции V&lt;версия&gt;__&lt;описание&gt;.sql, разобранный на операторы.
+ * <p>
+ * Операторы разделяются «;», комментарии «--» отбрасываются до конца строки —
+ * поэтому в строковых литералах скриптов не должно быть ни того, ни другого.
+ * Контрольная сумма — SHA-256 текста с переводами строк \n, чтобы не зависеть от ОС, где лежит checkout.
+ */
+record Migration(int version, String description, String checksum, boolean online, List<String> statements) {
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String ONLINE_MARKER = "-- @online";
+
+    static Migration of(Resource resource) {
+        String fileName = resource.getFilename();
+        Matcher name = FILE_NAME.matcher(fileName == null ? "" : fileName);
+        if (!name.matches()) {
+            throw new IllegalStateException("Имя миграции не по шаблону V<версия>__<описание>.sql: " + fileName);
+        }
+        String script;
+        try {
+            script = resource.getContentAsString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать миграцию " + fileName, e);
+        }
+        return new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '), checksum(script),
+                script.stripLeading().startsWith(ONLINE_MARKER), statements(script));
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " (" + description + ")";
+    }
+
+    private static List<String> statements(String script) {
+        StringBuilder sql = new StringBuilder();
+        for (String line : script.split("\n")) {
+            int comment = line.indexOf("--");
+            sql.append(comment < 0 ? line : line.substring(0, comment)).append('\n');
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : sql.toString().split(";")) {
+            if (!statement.isBlank()) statements.add(statement.strip());
+        }
+        return statements;
+    }
+
+    private static String checksum(String script) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
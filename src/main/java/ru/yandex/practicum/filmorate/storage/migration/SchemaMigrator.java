@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Версионные миграции схемы из db/migration/V&lt;версия&gt;__&lt;описание&gt;.sql — одни и те же для H2 и Postgres.
+ * <p>
+ * Применённые версии и контрольные суммы их скриптов хранятся в schema_history. При старте читается
+ * только она: если новых скриптов нет, DDL не выполняется. Скрипт, изменённый после применения,
+ * останавливает запуск — правка схемы оформляется новой версией.
+ * <p>
+ * Скрипт выполняется в одной транзакции с записью в schema_history. H2 фиксирует DDL сразу и
+ * не откатывает его, поэтому скрипты пишутся повторяемыми (IF NOT EXISTS, вставка недостающих строк).
+ * Скрипт с первой строкой «-- @online» выполняется по одному оператору без транзакции, а в Postgres
+ * CREATE INDEX в нём становится CREATE INDEX CONCURRENTLY и не блокирует запись в таблицу;
+ * недостроенный индекс прерванной попытки удаляется перед повтором.
+ * Несколько экземпляров приложения применяют миграции по очереди под advisory-блокировкой Postgres.
+ * <p>
+ * Путь Postgres (блокировка, CONCURRENTLY, удаление недостроенного индекса) тестами не покрыт:
+ * в сборке нет ни Postgres, ни Testcontainers.
+ */
+@Slf4j
+@Component
+public class SchemaMigrator implements InitializingBean {
+
+    private static final String LOCATION = "classpath:db/migration/V*__*.sql";
+
+    // ключ pg_advisory_lock: «filmorat» в ASCII
+    private static final long LOCK_KEY = 0x66696c6d6f726174L;
+
+    private static final long LOCK_POLL_MILLIS = 500;
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(UNIQUE\\s+)?INDEX\\s+(?!CONCURRENTLY\\b)(IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String SQL_TRY_LOCK = "/* migration.lock */ SELECT pg_try_advisory_lock(?)";
+
+    private static final String SQL_SELECT_HISTORY =
+            "/* migration.history */ SELECT version, checksum FROM schema_history ORDER BY version";
+
+    private static final String SQL_CREATE_HISTORY = """
+            /* migration.createHistory */
+            CREATE TABLE IF NOT EXISTS schema_history
+            (
+                version     INT          PRIMARY KEY,
+                description VARCHAR(200) NOT NULL,
+                checksum    VARCHAR(64)  NOT NULL,
+                applied_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                duration_ms BIGINT       NOT NULL
+            )
+            """;
+
+    private static final String SQL_INSERT_HISTORY = """
+            /* migration.record */
+            INSERT INTO schema_history (version, description, checksum, duration_ms)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String SQL_COUNT_INVALID_INDEXES = """
+            /* migration.invalidIndex */
+            SELECT COUNT(*)
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE c.relname = ? AND NOT i.indisvalid
+            """;
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate();
+    }
+
+    /**
+     * Применяет ещё не применённые миграции по возрастанию версий и возвращает их число.
+     */
+    public int migrate() {
+        List<Migration> available = load();
+        if (pending(available, history(new JdbcTemplate(dataSource))).isEmpty()) {
+            log.debug("Схема актуальна: V{}", available.isEmpty() ? 0 : available.get(available.size() - 1).version());
+            return 0;
+        }
+        // блокировка, autocommit и операторы миграций — на одном соединении
+        Integer applied = new JdbcTemplate(dataSource).execute((ConnectionCallback<Integer>) connection -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            if (postgres) lock(session);
+            try {
+                session.execute(SQL_CREATE_HISTORY);
+                // пока ждали блокировку, их мог применить другой экземпляр
+                List<Migration> pending = pending(available, history(session));
+                for (Migration migration : pending) {
+                    apply(connection, session, migration, postgres);
+                }
+                return pending.size();
+            } finally {
+                if (postgres) session.execute("/* migration.unlock */ SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+            }
+        });
+        return applied == null ? 0 : applied;
+    }
+
+    /**
+     * Ждёт advisory-блокировку повторными pg_try_advisory_lock. Ожидание внутри pg_advisory_lock — это
+     * открытый оператор со снимком, а CREATE INDEX CONCURRENTLY экземпляра, держащего блокировку,
+     * ждёт завершения всех таких снимков: экземпляры ждали бы друг друга без конца.
+     */
+    private static void lock(JdbcTemplate session) {
+        boolean waiting = false;
+        while (!Boolean.TRUE.equals(session.queryForObject(SQL_TRY_LOCK, Boolean.class, LOCK_KEY))) {
+            if (!waiting) {
+                log.info("Миграции применяет другой экземпляр — ожидание блокировки");
+                waiting = true;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Прервано ожидание блокировки миграций", e);
+            }
+        }
+    }
+
+    private static List<Migration> load() {
+        Resource[] resources;
+        try {
+            resources = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось найти миграции " + LOCATION, e);
+        }
+        Map<Integer, Migration> byVersion = new TreeMap<>();
+        for (Resource resource : resources) {
+            Migration migration = Migration.of(resource);
+            Migration same = byVersion.put(migration.version(), migration);
+            if (same != null) {
+                throw new IllegalStateException("Две миграции с версией " + migration.version() + ": "
+                        + same + " и " + migration);
+            }
+        }
+        return List.copyOf(byVersion.values());
+    }
+
+    /**
+     * Контрольные суммы применённых версий; пусто, если schema_history ещё нет.
+     */
+    private static Map<Integer, String> history(JdbcTemplate jdbc) {
+        Map<Integer, String> applied = new HashMap<>();
+        try {
+            jdbc.query(SQL_SELECT_HISTORY, rs -> {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            });
+        } catch (BadSqlGrammarException e) {
+            log.info("Таблицы schema_history нет — схема будет создана миграциями");
+        }
+        return applied;
+    }
+
+    private static List<Migration> pending(List<Migration> available, Map<Integer, String> applied) {
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : available) {
+            String checksum = applied.get(migration.version());
+            if (checksum == null) {
+                pending.add(migration);
+            } else if (!checksum.equals(migration.checksum())) {
+                throw new IllegalStateException("Миграция " + migration
+                        + " изменена после применения: изменения схемы оформляются новой версией");
+            }
+        }
+        return pending;
+    }
+
+    private static void apply(Connection connection, JdbcTemplate session, Migration migration, boolean postgres)
+            throws SQLException {
+        log.info("Применяется миграция {}", migration);
+        long started = System.nanoTime();
+        if (migration.online()) {
+            for (String statement : migration.statements()) {
+                session.execute(postgres ? concurrently(session, statement) : statement);
+            }
+            record(session, migration, started);
+        } else {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (String statement : migration.statements()) {
+                    session.execute(statement);
+                }
+                record(session, migration, started);
+                connection.commit();
+            } catch (RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        log.info("Миграция {} применена за {} мс", migration, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void record(JdbcTemplate session, Migration migration, long started) {
+        session.update(SQL_INSERT_HISTORY, migration.version(), migration.description(), migration.checksum(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * CREATE INDEX → CREATE INDEX CONCURRENTLY. Прерванная сборка оставляет индекс помеченным
+     * как невалидный, и IF NOT EXISTS его бы пропустил — такой индекс сначала удаляется.
+     */
+    private static String concurrently(JdbcTemplate session, String statement) {
+        Matcher index = CREATE_INDEX.matcher(statement);
+        if (!index.find()) return statement;
+        // имена без кавычек Postgres хранит в нижнем регистре
+        String name = index.group(3).toLowerCase(Locale.ROOT);
+        Integer invalid = session.queryForObject(SQL_COUNT_INVALID_INDEXES, Integer.class, name);
+        if (invalid != null && invalid > 0) {
+            log.warn("Индекс {} остался недостроенным после прерванной миграции — удаляется", name);
+            session.execute("/* migration.dropInvalidIndex */ DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        return index.replaceFirst("CREATE $1INDEX CONCURRENTLY $2$3");
+    }
+}
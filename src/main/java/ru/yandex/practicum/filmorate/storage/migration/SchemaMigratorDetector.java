@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+/**
+ * Встраивает SchemaMigrator в порядок инициализации Spring Boot: JdbcTemplate и всё, что от него
+ * зависит (хранилища, индексы, собираемые при старте), создаются после применения миграций.
+ * Зарегистрирован в META-INF/spring.factories.
+ */
+class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
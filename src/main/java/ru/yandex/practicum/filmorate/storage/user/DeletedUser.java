@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+/**
+ * Что ушло вместе с пользователем: прочитано в той же транзакции, что и удаление.
+ *
+ * @param likedFilmIds фильмы, с которых сняты его лайки, по возрастанию id
+ * @param friendedBy   пользователи, из чьих списков друзей он убран, по возрастанию id
+ */
+public record DeletedUser(long id, long[] likedFilmIds, long[] friendedBy) {
+}
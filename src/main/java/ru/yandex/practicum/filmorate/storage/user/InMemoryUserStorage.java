@@ -5,25 +5,36 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.SortedLongArrays;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.VersionClock;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
 @Qualifier("inMemoryUserStorage")
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Long, User> users = new HashMap<>();
-    private Long idCounter = 1L;
-    private final Map<Long, Map<Long, FriendshipStatus>> friendships = new HashMap<>();
+    // хранимые экземпляры наружу не отдаются: запись кладёт копию, чтение возвращает копию
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final AtomicLong idCounter = new AtomicLong(1);
+    private final VersionClock versions = new VersionClock("user");
+    // исходящие связи дружбы: отсортированные массивы id без упаковки в Long.
+    // Массивы неизменяемы — изменение подменяет массив атомарно через compute, чтение без блокировок
+    private final Map<Long, long[]> friendships = new ConcurrentHashMap<>();
+    private static final long[] NO_FRIENDS = new long[0];
 
     @Override
     public User create(User user) {
-        long id = idCounter++;
+        long id = idCounter.getAndIncrement();
         user.setId(id);
-        users.put(id, user);
-        log.info("Создан пользователь: {}", user);
+        users.put(id, copy(user));
+        versions.touch(id);
+        log.info("Создан пользователь id={}", id);
         return user;
     }
 
@@ -31,23 +42,30 @@ public class InMemoryUserStorage implements UserStorage {
     public User update(User user) {
         Long id = user.getId();
 
-        if (id == null || !users.containsKey(id)) {
+        if (id == null || users.replace(id, copy(user)) == null) {
             throw new NotFoundException(String.format("Не найден пользователь с id: %s", id));
         }
 
-        users.put(id, user);
-        log.info("Обновлён пользователь: {}", user);
+        versions.touch(id);
+        log.info("Обновлён пользователь id={}", id);
         return user;
     }
 
     @Override
-    public Long deleteById(Long id) {
-        if (id == null || !users.containsKey(id)) {
+    public DeletedUser deleteById(Long id) {
+        if (id == null || users.remove(id) == null) {
             throw new NotFoundException(String.format("Не найден пользователь с id: %s", id));
         }
-        users.remove(id);
+        friendships.remove(id);
+        // как каскад в БД: убираем его из чужих списков друзей, версии этих пользователей меняются
+        long[] friendedBy = findFriendedByIds(id);
+        for (long follower : friendedBy) {
+            removeFriendConnection(follower, id);
+        }
+        versions.forget(id);
         log.info("Удалён пользователь id={}", id);
-        return id;
+        // лайки хранит хранилище фильмов, отсюда их не снять
+        return new DeletedUser(id, NO_FRIENDS, friendedBy);
     }
 
     @Override
@@ -58,27 +76,155 @@ public class InMemoryUserStorage implements UserStorage {
             throw new NotFoundException(String.format("Не найден пользователь с id: %s", id));
         }
 
-        return user;
+        return copy(user);
+    }
+
+    @Override
+    public boolean isUserExist(Long id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public Version getVersion(Long id) {
+        Version version = versions.of(id);
+        if (version == null) {
+            throw new NotFoundException(String.format("Не найден пользователь с id: %s", id));
+        }
+        return version;
     }
 
     @Override
     public Collection<User> findAll() {
-        return new ArrayList<>(users.values());
+        List<User> result = new ArrayList<>(users.size());
+        for (User user : users.values()) {
+            result.add(copy(user));
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        return users.values().stream()
+                .filter(u -> u.getId() > after)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .map(InMemoryUserStorage::copy)
+                .toList();
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        requireExists(userId);
+        long[] ids = friendships.getOrDefault(userId, NO_FRIENDS);
+        return resolve(ids, ids.length);
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        requireExists(userId);
+        requireExists(otherId);
+
+        long[] a = friendships.getOrDefault(userId, NO_FRIENDS);
+        long[] b = friendships.getOrDefault(otherId, NO_FRIENDS);
+        long[] common = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        // пересечение слиянием двух отсортированных массивов
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return resolve(common, n);
+    }
+
+    @Override
+    public List<User> findByIds(List<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = users.get(id);
+            if (user != null) result.add(copy(user));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        for (Long userId : new TreeSet<>(friendships.keySet())) {
+            for (long friendId : friendships.getOrDefault(userId, NO_FRIENDS)) {
+                consumer.accept(userId, friendId);
+            }
+        }
+    }
+
+    @Override
+    public long[] findFriendedByIds(long userId) {
+        return friendships.entrySet().stream()
+                .filter(e -> Arrays.binarySearch(e.getValue(), userId) >= 0)
+                .mapToLong(Map.Entry::getKey)
+                .sorted()
+                .toArray();
     }
 
     @Override
     public void setFriendConnection(Long from, Long to, FriendshipStatus status) {
-        friendships
-                .computeIfAbsent(from, k -> new HashMap<>())
-                .put(to, status);
+        // статус здесь не хранится (он единственный), так что изменение — только новый id в массиве
+        boolean[] changed = new boolean[1];
+        friendships.compute(from, (k, ids) -> {
+            long[] current = ids == null ? NO_FRIENDS : ids;
+            long[] updated = SortedLongArrays.with(current, to);
+            changed[0] = updated != current;
+            return updated;
+        });
+        if (changed[0]) versions.touch(from);
     }
 
     @Override
     public void removeFriendConnection(Long from, Long to) {
-        Map<Long, FriendshipStatus> m = friendships.get(from);
-        if (m != null) {
-            m.remove(to);
-            if (m.isEmpty()) friendships.remove(from);
+        boolean[] changed = new boolean[1];
+        friendships.computeIfPresent(from, (k, ids) -> {
+            long[] updated = withoutFriend(ids, to);
+            changed[0] = updated != ids;
+            return updated;
+        });
+        if (changed[0]) versions.touch(from);
+    }
+
+    // пустой массив не храним: null из compute удаляет запись из friendships
+    private static long[] withoutFriend(long[] ids, long to) {
+        long[] updated = SortedLongArrays.without(ids, to);
+        return updated.length == 0 ? null : updated;
+    }
+
+    private List<User> resolve(long[] ids, int count) {
+        List<User> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = users.get(ids[i]);
+            if (user != null) result.add(copy(user));
         }
+        return result;
+    }
+
+    private void requireExists(Long id) {
+        if (!users.containsKey(id)) {
+            throw new NotFoundException(String.format("Не найден пользователь с id: %s", id));
+        }
+    }
+
+    private static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setLogin(source.getLogin());
+        user.setName(source.getName());
+        user.setBirthday(source.getBirthday());
+        user.getFriends().addAll(source.getFriends());
+        user.getLikes().addAll(source.getLikes());
+        return user;
     }
 }
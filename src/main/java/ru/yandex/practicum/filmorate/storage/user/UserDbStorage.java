@@ -3,14 +3,25 @@ package ru.yandex.practicum.filmorate.storage.user;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -21,56 +32,171 @@ import java.util.Optional;
 public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final QueryFanOut fanOut;
     private final UserRowMapper rm = new UserRowMapper();
+    // вставка с возвратом id; текст запроса виден замеру (см. MeteredJdbcTemplate)
+    private final PreparedStatementCreatorFactory userInsert = userInsertFactory();
 
+    // комментарий в начале запроса — его имя в метриках filmorate.sql (см. MeteredJdbcTemplate)
     private static final String INSERT_SQL = """
+            /* user.insert */
             INSERT INTO users (email, login, name, birthday, created_at, updated_at)
             VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
             """;
 
     private static final String UPDATE_SQL = """
+            /* user.update */
             UPDATE users
                SET email = ?,
                    login = ?,
                    name = ?,
                    birthday = ?,
-                   updated_at = CURRENT_TIMESTAMP
+                   updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
              WHERE id = ?
             """;
 
-    private static final String DELETE_SQL = "DELETE FROM users WHERE id = ?";
+    // updated_at — версия пользователя для ETag, поэтому строго растёт (см. FilmDbStorage).
+    // Список друзей виден в ответе и тоже её меняет
+    private static final String TOUCH_USER_SQL = """
+            /* user.touch */
+            UPDATE users
+               SET updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
+             WHERE id = ?
+            """;
+
+    // удаление пользователя каскадом убирает его лайки и его из чужих списков друзей —
+    // версии этих фильмов и пользователей тоже должны смениться, а лайки — уйти со счётчиков
+    private static final String WITHDRAW_LIKES_SQL = """
+            /* user.withdrawLikes */
+            UPDATE films
+               SET likes_count = likes_count - 1,
+                   updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
+             WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)
+            """;
+
+    private static final String WITHDRAW_GENRE_LIKES_SQL = """
+            /* user.withdrawGenreLikes */
+            UPDATE film_genres
+               SET likes_count = likes_count - 1
+             WHERE film_id IN (SELECT film_id FROM film_likes WHERE user_id = ?)
+            """;
+
+    private static final String TOUCH_FRIENDED_BY_SQL = """
+            /* user.touchFriendedBy */
+            UPDATE users
+               SET updated_at = GREATEST(CURRENT_TIMESTAMP, COALESCE(updated_at, created_at) + INTERVAL '0.000001' SECOND)
+             WHERE id IN (SELECT user_id FROM friendships WHERE friend_id = ?)
+            """;
+
+    private static final String VERSION_SQL =
+            "/* user.version */ SELECT COALESCE(updated_at, created_at) FROM users WHERE id = ?";
+
+    private static final String DELETE_SQL = "/* user.delete */ DELETE FROM users WHERE id = ?";
 
 
     private static final String SELECT_BY_ID_SQL = """
+            /* user.findById */
             SELECT id, email, login, name, birthday
               FROM users
              WHERE id = ?
             """;
 
+    private static final String COUNT_BY_ID_SQL = "/* user.exists */ SELECT COUNT(*) FROM users WHERE id = ?";
+
     private static final String SELECT_ALL_SQL = """
+            /* user.findAll */
             SELECT id, email, login, name, birthday
               FROM users
              ORDER BY id
             """;
 
+    private static final String SELECT_PAGE_SQL = """
+            /* user.findPage */
+            SELECT id, email, login, name, birthday
+              FROM users
+             WHERE id > ?
+             ORDER BY id
+             LIMIT ?
+            """;
+
+    private static final String SELECT_BY_IDS_SQL = """
+            /* user.findByIds */
+            SELECT id, email, login, name, birthday
+              FROM users
+             WHERE id IN (:ids)
+            """;
+
+    // по idx_friendships_friend, без обхода friendships
+    private static final String SELECT_FRIENDED_BY_SQL =
+            "/* user.friendedBy */ SELECT user_id FROM friendships WHERE friend_id = ? ORDER BY user_id";
+
+    // по idx_film_likes_user, без обхода film_likes
+    private static final String SELECT_LIKED_FILM_IDS_SQL =
+            "/* user.likedFilms */ SELECT film_id FROM film_likes WHERE user_id = ? ORDER BY film_id";
+
+    private static final String SELECT_ALL_FRIENDSHIPS_SQL = """
+            /* user.allFriendships */
+            SELECT user_id, friend_id
+              FROM friendships
+             ORDER BY user_id, friend_id
+            """;
+
+    private static final int FRIENDSHIPS_FETCH_SIZE = 1000;
+
     private static final String SELECT_FRIEND_IDS = """
+            /* user.friendIds */
             SELECT friend_id FROM friendships
              WHERE user_id = ?
             """;
 
+    private static final String SELECT_FRIENDS_SQL = """
+            /* user.findFriends */
+            SELECT u.id, u.email, u.login, u.name, u.birthday
+              FROM friendships f
+              JOIN users u ON u.id = f.friend_id
+             WHERE f.user_id = ?
+             ORDER BY u.id
+            """;
+
+    private static final String SELECT_COMMON_FRIENDS_SQL = """
+            /* user.findCommonFriends */
+            SELECT u.id, u.email, u.login, u.name, u.birthday
+              FROM friendships a
+              JOIN friendships b ON b.friend_id = a.friend_id
+              JOIN users u ON u.id = a.friend_id
+             WHERE a.user_id = ? AND b.user_id = ?
+             ORDER BY u.id
+            """;
+
+    // MERGE ... KEY считает строку изменённой, даже если она уже была такой же; здесь уже
+    // существующая связь с тем же статусом даёт 0 строк, и версия пользователя не меняется
     private static final String UPSERT_FRIEND = """
-            MERGE INTO friendships (user_id, friend_id, status_id)
-            KEY (user_id, friend_id)
-            VALUES (?, ?, ?)
+            /* user.addFriend */
+            MERGE INTO friendships AS f
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INT))) AS s (user_id, friend_id, status_id)
+               ON f.user_id = s.user_id AND f.friend_id = s.friend_id
+             WHEN MATCHED AND f.status_id <> s.status_id THEN
+                  UPDATE SET status_id = s.status_id
+             WHEN NOT MATCHED THEN
+                  INSERT (user_id, friend_id, status_id) VALUES (s.user_id, s.friend_id, s.status_id)
             """;
 
     private static final String DELETE_FRIEND = """
+            /* user.removeFriend */
             DELETE FROM friendships
              WHERE user_id = ? AND friend_id = ?
             """;
 
     private static final int STATUS_CONFIRMED_ID = 1;
 
+    private static PreparedStatementCreatorFactory userInsertFactory() {
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(INSERT_SQL,
+                Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE);
+        factory.setGeneratedKeysColumnNames("id");
+        return factory;
+    }
+
     @Override
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
@@ -79,14 +205,8 @@ public class UserDbStorage implements UserStorage {
 
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
 
-        jdbc.update(con -> {
-            PreparedStatement ps = con.prepareStatement(INSERT_SQL, new String[]{"id"});
-            ps.setString(1, user.getEmail());
-            ps.setString(2, user.getLogin());
-            ps.setString(3, user.getName());
-            ps.setObject(4, user.getBirthday());
-            return ps;
-        }, keyHolder);
+        jdbc.update(userInsert.newPreparedStatementCreator(
+                Arrays.asList(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday())), keyHolder);
 
         long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         user.setId(id);
@@ -103,41 +223,135 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public Long deleteById(Long id) {
+    @Transactional
+    public DeletedUser deleteById(Long id) {
+        // читаем до каскада и в той же транзакции, что и удаление: это ровно то, что уйдёт вместе с ним
+        long[] likedFilmIds = idsOf(SELECT_LIKED_FILM_IDS_SQL, id);
+        long[] friendedBy = idsOf(SELECT_FRIENDED_BY_SQL, id);
+        jdbc.update(WITHDRAW_LIKES_SQL, id);
+        jdbc.update(WITHDRAW_GENRE_LIKES_SQL, id);
+        jdbc.update(TOUCH_FRIENDED_BY_SQL, id);
         int n = jdbc.update(DELETE_SQL, id);
         if (n == 0) {
             throw new NotFoundException("Не найден пользователь с id: " + id);
         }
-        return id;
+        return new DeletedUser(id, likedFilmIds, friendedBy);
     }
 
     @Override
     public User getById(Long id) {
-        Optional<User> opt = jdbc.query(SELECT_BY_ID_SQL, rm, id).stream().findFirst();
+        List<User> found = new ArrayList<>(1);
+        LongHashSet friendIds = new LongHashSet();
+        fanOut.run(
+                () -> found.addAll(jdbc.query(SELECT_BY_ID_SQL, rm, id)),
+                () -> jdbc.query(SELECT_FRIEND_IDS, (RowCallbackHandler) rs -> friendIds.add(rs.getLong(1)), id));
+
+        Optional<User> opt = found.stream().findFirst();
         if (opt.isEmpty()) {
             throw new NotFoundException("Не найден пользователь с id: " + id);
         }
         User u = opt.get();
 
-        List<Long> friendIds = jdbc.query(SELECT_FRIEND_IDS, (rs, rn) -> rs.getLong(1), id);
         u.getFriends().clear();
         u.getFriends().addAll(friendIds);
         return u;
     }
 
+    @Override
+    public boolean isUserExist(Long id) {
+        Integer cnt = jdbc.queryForObject(COUNT_BY_ID_SQL, Integer.class, id);
+        return cnt != null && cnt > 0;
+    }
+
+    @Override
+    public Version getVersion(Long id) {
+        List<Timestamp> found = jdbc.queryForList(VERSION_SQL, Timestamp.class, id);
+        if (found.isEmpty()) {
+            throw new NotFoundException("Не найден пользователь с id: " + id);
+        }
+        return Version.of("user", id, found.get(0).toInstant());
+    }
+
     @Override
     public java.util.Collection<User> findAll() {
         return jdbc.query(SELECT_ALL_SQL, rm);
     }
 
+    @Override
+    public List<User> findPage(long after, int limit) {
+        return jdbc.query(SELECT_PAGE_SQL, rm, after, limit);
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        List<User> friends = jdbc.query(SELECT_FRIENDS_SQL, rm, userId);
+        // пустой результат — единственный случай, когда нужно отличить «нет друзей» от «нет пользователя»
+        if (friends.isEmpty()) {
+            requireExists(userId);
+        }
+        return friends;
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        List<User> common = jdbc.query(SELECT_COMMON_FRIENDS_SQL, rm, userId, otherId);
+        if (common.isEmpty()) {
+            requireExists(userId);
+            requireExists(otherId);
+        }
+        return common;
+    }
+
+    @Override
+    public List<User> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, User> byId = new HashMap<>(ids.size() * 2);
+        for (User user : namedJdbc.query(SELECT_BY_IDS_SQL, Map.of("ids", ids), rm)) {
+            byId.put(user.getId(), user);
+        }
+        List<User> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            User user = byId.get(id);
+            if (user != null) result.add(user);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        jdbc.query(SELECT_ALL_FRIENDSHIPS_SQL, ps -> ps.setFetchSize(FRIENDSHIPS_FETCH_SIZE), (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2)));
+    }
+
+    @Override
+    public long[] findFriendedByIds(long userId) {
+        return idsOf(SELECT_FRIENDED_BY_SQL, userId);
+    }
+
     @Override
     public void setFriendConnection(Long from, Long to, FriendshipStatus status) {
-        jdbc.update(UPSERT_FRIEND, from, to, STATUS_CONFIRMED_ID);
+        if (jdbc.update(UPSERT_FRIEND, from, to, STATUS_CONFIRMED_ID) > 0) {
+            jdbc.update(TOUCH_USER_SQL, from);
+        }
     }
 
     @Override
     public void removeFriendConnection(Long from, Long to) {
-        jdbc.update(DELETE_FRIEND, from, to);
+        if (jdbc.update(DELETE_FRIEND, from, to) > 0) {
+            jdbc.update(TOUCH_USER_SQL, from);
+        }
+    }
+
+    private long[] idsOf(String sql, long userId) {
+        return jdbc.queryForList(sql, Long.class, userId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private void requireExists(Long id) {
+        if (!isUserExist(id)) {
+            throw new NotFoundException("Не найден пользователь с id: " + id);
+        }
     }
 
 }
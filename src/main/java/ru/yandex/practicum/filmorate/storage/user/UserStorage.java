@@ -2,21 +2,68 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
     User create(User user);
 
     User update(User user);
 
-    Long deleteById(Long id);
+    /**
+     * Удаляет пользователя вместе с его лайками и его связями дружбы в обе стороны.
+     */
+    DeletedUser deleteById(Long id);
 
     User getById(Long id);
 
+    boolean isUserExist(Long id);
+
+    /**
+     * Версия пользователя без чтения друзей; меняется при любом изменении, включая список друзей.
+     */
+    Version getVersion(Long id);
+
     Collection<User> findAll();
 
+    /**
+     * Keyset-страница: пользователи с id > after по возрастанию id, не больше limit.
+     */
+    List<User> findPage(long after, int limit);
+
+    /**
+     * Друзья пользователя по возрастанию id (без их собственных списков друзей).
+     */
+    List<User> getFriends(Long userId);
+
+    /**
+     * Общие друзья двух пользователей по возрастанию id; пустой список, если их нет.
+     */
+    List<User> getCommonFriends(Long userId, Long otherId);
+
+    /**
+     * Пользователи с указанными id в порядке списка; отсутствующие id пропускаются.
+     */
+    List<User> findByIds(List<Long> ids);
+
+    /**
+     * Передаёт все связи дружбы по возрастанию (userId, friendId), не собирая их в памяти.
+     */
+    void forEachFriendship(FriendshipConsumer consumer);
+
+    /**
+     * id пользователей, у которых userId в друзьях, по возрастанию.
+     */
+    long[] findFriendedByIds(long userId);
+
     void setFriendConnection(Long from, Long to, FriendshipStatus status);
 
     void removeFriendConnection(Long from, Long to);
+
+    @FunctionalInterface
+    interface FriendshipConsumer {
+        void accept(long userId, long friendId);
+    }
 }
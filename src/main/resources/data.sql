@@ -1,14 +0,0 @@
-MERGE INTO mpa (id, name) KEY(id) VALUES (1, 'G');
-MERGE INTO mpa (id, name) KEY(id) VALUES (2, 'PG');
-MERGE INTO mpa (id, name) KEY(id) VALUES (3, 'PG-13');
-MERGE INTO mpa (id, name) KEY(id) VALUES (4, 'R');
-MERGE INTO mpa (id, name) KEY(id) VALUES (5, 'NC-17');
-
-MERGE INTO genres (id, name) KEY(id) VALUES (1, 'Комедия');
-MERGE INTO genres (id, name) KEY(id) VALUES (2, 'Драма');
-MERGE INTO genres (id, name) KEY(id) VALUES (3, 'Мультфильм');
-MERGE INTO genres (id, name) KEY(id) VALUES (4, 'Триллер');
-MERGE INTO genres (id, name) KEY(id) VALUES (5, 'Документальный');
-MERGE INTO genres (id, name) KEY(id) VALUES (6, 'Боевик');
-
-MERGE INTO friend_status (id, name) KEY(id) VALUES (1, 'CONFIRMED');
\ No newline at end of file
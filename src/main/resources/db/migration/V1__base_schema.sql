@@ -1,3 +1,5 @@
+-- Исходная схема. IF NOT EXISTS — для баз, созданных до миграций из schema.sql или db-init в compose.yaml
+
 -- Справочники
 CREATE TABLE IF NOT EXISTS mpa
 (
@@ -20,24 +22,24 @@ CREATE TABLE IF NOT EXISTS friend_status
 -- Основные таблицы
 CREATE TABLE IF NOT EXISTS users
 (
-    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     email      VARCHAR(255) NOT NULL UNIQUE,
     login      VARCHAR(100) NOT NULL UNIQUE,
     name       VARCHAR(255),
     birthday   DATE,
-    created_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP(),
+    created_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP    NULL
 );
 
 CREATE TABLE IF NOT EXISTS films
 (
-    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     name         VARCHAR(255) NOT NULL,
     description  VARCHAR(1500),
     release_date DATE         NOT NULL,
     duration     INT          NOT NULL CHECK (duration > 0),
     mpa_id       INT          NOT NULL,
-    created_at   TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP(),
+    created_at   TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at   TIMESTAMP,
     CONSTRAINT fk_films_mpa FOREIGN KEY (mpa_id) REFERENCES mpa (id)
 );
@@ -0,0 +1,16 @@
+-- Справочники. Уже заполненные строки не трогаются: в старых базах они есть из data.sql или db-init
+INSERT INTO mpa (id, name)
+SELECT v.id, v.name
+FROM (VALUES (1, 'G'), (2, 'PG'), (3, 'PG-13'), (4, 'R'), (5, 'NC-17')) AS v (id, name)
+WHERE NOT EXISTS (SELECT 1 FROM mpa m WHERE m.id = v.id);
+
+INSERT INTO genres (id, name)
+SELECT v.id, v.name
+FROM (VALUES (1, 'Комедия'), (2, 'Драма'), (3, 'Мультфильм'), (4, 'Триллер'), (5, 'Документальный'),
+             (6, 'Боевик')) AS v (id, name)
+WHERE NOT EXISTS (SELECT 1 FROM genres g WHERE g.id = v.id);
+
+INSERT INTO friend_status (id, name)
+SELECT v.id, v.name
+FROM (VALUES (1, 'CONFIRMED'), (2, 'PENDING')) AS v (id, name)
+WHERE NOT EXISTS (SELECT 1 FROM friend_status s WHERE s.id = v.id);
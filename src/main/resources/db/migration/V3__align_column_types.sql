@@ -0,0 +1,10 @@
+-- Схема Postgres из db-init в compose.yaml разошлась с schema.sql: приводим к V1.
+-- Расширение VARCHAR в Postgres меняет только метаданные и не переписывает таблицу
+ALTER TABLE mpa ALTER COLUMN name SET DATA TYPE VARCHAR(32);
+ALTER TABLE friend_status ALTER COLUMN name SET DATA TYPE VARCHAR(64);
+
+-- updated_at пуст до первого изменения: версия записи — COALESCE(updated_at, created_at)
+ALTER TABLE users ALTER COLUMN updated_at DROP NOT NULL;
+ALTER TABLE users ALTER COLUMN updated_at DROP DEFAULT;
+ALTER TABLE films ALTER COLUMN updated_at DROP NOT NULL;
+ALTER TABLE films ALTER COLUMN updated_at DROP DEFAULT;
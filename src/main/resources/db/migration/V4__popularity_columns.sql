@@ -0,0 +1,20 @@
+-- Год выпуска и число лайков продублированы для индексов популярных фильмов (V5);
+-- в film_genres — копии из films: топ жанра читается из индекса без сортировки
+ALTER TABLE films ADD COLUMN IF NOT EXISTS release_year INT;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+ALTER TABLE film_genres ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+ALTER TABLE film_genres ADD COLUMN IF NOT EXISTS release_year INT;
+
+UPDATE films f
+   SET release_year = EXTRACT(YEAR FROM f.release_date)
+ WHERE f.release_year IS NULL;
+
+UPDATE films f
+   SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+ WHERE f.likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id);
+
+UPDATE film_genres fg
+   SET likes_count  = (SELECT f.likes_count FROM films f WHERE f.id = fg.film_id),
+       release_year = (SELECT f.release_year FROM films f WHERE f.id = fg.film_id)
+ WHERE fg.release_year IS NULL
+    OR fg.likes_count <> (SELECT f.likes_count FROM films f WHERE f.id = fg.film_id);
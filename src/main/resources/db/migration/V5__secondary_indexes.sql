@@ -0,0 +1,12 @@
+-- @online
+-- Вторичные индексы. В Postgres строятся через CREATE INDEX CONCURRENTLY, не блокируя запись в таблицы
+
+-- топ-N с фильтром читается из индекса в нужном порядке и останавливается на N-й строке
+CREATE INDEX IF NOT EXISTS idx_films_popularity ON films (likes_count DESC, id);
+CREATE INDEX IF NOT EXISTS idx_films_year_popularity ON films (release_year, likes_count DESC, id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_popularity ON film_genres (genre_id, likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_year_popularity
+    ON film_genres (genre_id, release_year, likes_count DESC, film_id);
+-- лайки и входящие заявки пользователя: удаление пользователя и каскады по внешним ключам
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id);
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.logging.AsyncHttpLogWriter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncHttpLogWriterTest {
+
+    @Test
+    void write_dropsOverflowWithoutBlockingAndKeepsOrder() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(2, registry, message -> {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(message);
+        });
+
+        // первое сообщение забирает поток записи и зависает на «медленном диске»
+        writer.write(null, "m0");
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+
+        // очередь на два сообщения: третье и четвёртое отбрасываются, запись не ждёт
+        for (int i = 1; i <= 4; i++) {
+            writer.write(null, "m" + i);
+        }
+        assertEquals(2.0, registry.get("filmorate.http.log.dropped").counter().count());
+
+        release.countDown();
+        writer.destroy();
+        assertEquals(List.of("m0", "m1", "m2"), written);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.services.CoLikeIndex;
+import ru.yandex.practicum.filmorate.services.LikeEvent;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoLikeIndexTest {
+
+    @Test
+    void deletedFilm_leavesNeighborListsThatDoNotListItBack() {
+        CoLikeIndex index = new CoLikeIndex(new InMemoryFilmStorage(), 1, 1);
+        // у фильма 6 ближайший — 1, а у фильма 1 — 2 (близость к 2 и 6 равна, меньший id раньше)
+        long[][] likes = {{1, 1}, {2, 1}, {6, 1}, {1, 2}, {2, 2}, {1, 3}, {3, 3}, {6, 3}};
+        for (long[] like : likes) {
+            index.onLikeEvent(LikeEvent.added(like[0], like[1]));
+        }
+        assertArrayEquals(new long[]{2}, index.similar(1, 1));
+        assertArrayEquals(new long[]{1}, index.similar(6, 1));
+
+        index.onLikeEvent(LikeEvent.filmDeleted(1));
+
+        // список фильма 6 пересчитан без удалённого: близость к 3 — 1/√2, к 2 — 1/2
+        assertArrayEquals(new long[]{3}, index.similar(6, 1));
+    }
+
+    @Test
+    void likesOfHotFilm_mergeIntoOneBackgroundRefresh() {
+        List<Runnable> queued = new ArrayList<>();
+        Executor deferred = queued::add;
+        CoLikeIndex index = new CoLikeIndex(new InMemoryFilmStorage(), 5, 1, deferred);
+
+        for (long userId = 1; userId <= 100; userId++) {
+            index.onLikeEvent(LikeEvent.added(1, userId));
+            index.onLikeEvent(LikeEvent.added(2, userId));
+        }
+        // поток события ничего не пересчитывал — до запуска фоновой задачи соседей нет
+        assertArrayEquals(new long[0], index.similar(1, 5));
+        assertEquals(1, queued.size());
+
+        queued.get(0).run();
+        assertArrayEquals(new long[]{2}, index.similar(1, 5));
+        assertArrayEquals(new long[]{1}, index.similar(2, 5));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ExportControllerTest extends BaseControllerTest {
+
+    @Test
+    void exportFilms_ndjsonResumesAfterCursor() throws Exception {
+        long a = createFilmAndGetId("A, \"quoted\"", "d", LocalDate.of(2000, 1, 1), 100, 2, new LinkedHashSet<>());
+        long b = createFilmAndGetId("B", "d", LocalDate.of(2001, 2, 3), 90, 3, new LinkedHashSet<>(Set.of(1L)));
+
+        List<String> lines = mockMvc.perform(get("/export/films").param("after", String.valueOf(a - 1)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(a, first.get("id").asLong());
+        assertEquals("A, \"quoted\"", first.get("name").asText());
+        assertEquals("2000-01-01", first.get("release_date").asText());
+        assertEquals(2, first.get("mpa_id").asInt());
+
+        lines = mockMvc.perform(get("/export/films").param("after", String.valueOf(a)))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals(b, objectMapper.readTree(lines.get(0)).get("id").asLong());
+    }
+
+    @Test
+    void exportLikes_gzippedCsvResumesAfterCompositeKey() throws Exception {
+        long film = createFilmAndGetId("A", "d", LocalDate.of(2000, 1, 1), 100, 1, new LinkedHashSet<>());
+        long first = createUserAndGetId("export" + System.nanoTime() + "@mail.ru", "exp" + System.nanoTime(), "n",
+                LocalDate.of(1990, 1, 1));
+        long second = createUserAndGetId("export" + System.nanoTime() + "@mail.ru", "exp" + System.nanoTime(), "n",
+                LocalDate.of(1990, 1, 1));
+        mockMvc.perform(put("/films/{id}/like/{userId}", film, first)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", film, second)).andExpect(status().isOk());
+
+        // выгрузка оборвалась на лайке (film, first) — продолжение начинается со следующего лайка того же фильма
+        byte[] body = mockMvc.perform(get("/export/film_likes")
+                        .param("format", "csv")
+                        .param("after", film + "," + first)
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        assertEquals("film_id,user_id\r\n" + film + "," + second + "\r\n", csv);
+
+        mockMvc.perform(get("/export/film_likes").param("after", String.valueOf(film)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_gzipRefusedWithZeroQuality() throws Exception {
+        mockMvc.perform(get("/export/films").header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        mockMvc.perform(get("/export/films").header("Accept-Encoding", "*;q=0.5, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+        mockMvc.perform(get("/export/films").header("Accept-Encoding", "*, gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        mockMvc.perform(get("/export/films").header("Accept-Encoding", "*;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        mockMvc.perform(get("/export/films").header("Accept-Encoding", "GZIP;Q=0.001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    void export_unknownDatasetOrFormat_shouldFail() throws Exception {
+        mockMvc.perform(get("/export/passwords")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/export/films").param("format", "xml")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/export/films").param("after", "-1")).andExpect(status().isBadRequest());
+    }
+}
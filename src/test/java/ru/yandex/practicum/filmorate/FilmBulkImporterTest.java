@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.services.FilmBulkImporter;
+import ru.yandex.practicum.filmorate.services.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.services.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.validation.FilmValidator;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmBulkImporterTest {
+
+    private static final int MAX_LINE = 200;
+    private static final String FILM = "{\"name\":\"A\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":100}";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    // порция из одной строки: результат каждой строки уходит клиенту сразу
+    private final FilmBulkImporter importer = importer(1);
+
+    @Test
+    void lineOfMaxLength_isAccepted_andLongerLineEndsResponseWithError() throws Exception {
+        StringWriter out = new StringWriter();
+        String body = String.join("\n", FILM, padded(MAX_LINE), padded(MAX_LINE + 1), FILM);
+
+        int created = importer.importNdjson(new StringReader(body), out);
+
+        String[] results = out.toString().split("\n");
+        assertEquals(2, created);
+        assertEquals(3, results.length);
+        assertTrue(objectMapper.readTree(results[0]).has("id"));
+        assertEquals(2, objectMapper.readTree(results[1]).get("line").asInt());
+        assertTrue(objectMapper.readTree(results[1]).has("id"));
+        assertEquals(3, objectMapper.readTree(results[2]).get("line").asInt());
+        assertEquals("Строка 3 длиннее " + MAX_LINE + " символов", objectMapper.readTree(results[2]).get("error").asText());
+        assertEquals(2, filmStorage.findAll().size());
+    }
+
+    @Test
+    void longerLineBeforeFirstResult_rejectsWholeImport() {
+        StringWriter out = new StringWriter();
+        String body = String.join("\r\n", FILM, padded(MAX_LINE + 1));
+
+        assertThrows(ValidationException.class, () -> importer(1000).importNdjson(new StringReader(body), out));
+        assertEquals("", out.toString());
+        assertEquals(0, filmStorage.findAll().size());
+    }
+
+    private FilmBulkImporter importer(int chunkSize) {
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        return new FilmBulkImporter(filmStorage, new FilmValidator(filmStorage), leaderboard,
+                new FilmSearchIndex(filmStorage, leaderboard, 0.2, 0), event -> {
+        }, objectMapper, chunkSize, MAX_LINE);
+    }
+
+    // фильм, дополненный ведущими пробелами до length символов
+    private static String padded(int length) {
+        return " ".repeat(length - FILM.length()) + FILM;
+    }
+}
@@ -3,16 +3,41 @@ package ru.yandex.practicum.filmorate;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.Test;
-
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
 import java.util.Set;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class FilmControllerTest extends BaseControllerTest {
 
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmDbStorage;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     //Positive
 
     @Test
@@ -184,6 +209,50 @@ class FilmControllerTest extends BaseControllerTest {
                 .andExpect(jsonPath("$.genres[1].id").value(6));
     }
 
+    // Pagination
+
+    @Test
+    void findPage_walksCatalogByCursor() throws Exception {
+        long a = createFilmAndGetId("P1", "d", LocalDate.of(2000, 1, 1), 100, 2, null);
+        long b = createFilmAndGetId("P2", "d", LocalDate.of(2000, 1, 1), 100, 2, null);
+        long c = createFilmAndGetId("P3", "d", LocalDate.of(2000, 1, 1), 100, 2, null);
+
+        mockMvc.perform(get("/films").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(a))
+                .andExpect(jsonPath("$.items[1].id").value(b))
+                .andExpect(jsonPath("$.nextCursor").value(b));
+
+        mockMvc.perform(get("/films").param("after", String.valueOf(b)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(c))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void streamAll_returnsWholeCatalog() throws Exception {
+        long a = createFilmAndGetId("S1", "d", LocalDate.of(2000, 1, 1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+        long b = createFilmAndGetId("S2", "d", LocalDate.of(2001, 1, 1), 90, 3, null);
+
+        mockMvc.perform(get("/films").param("stream", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(json))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(a))
+                .andExpect(jsonPath("$[0].genres[0].id").value(1))
+                .andExpect(jsonPath("$[0].releaseDate").value("2000-01-01"))
+                .andExpect(jsonPath("$[1].id").value(b))
+                .andExpect(jsonPath("$[1].mpa.name").value("PG-13"));
+    }
+
+    @Test
+    void findPage_nonPositiveLimit_shouldFail() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     // Likes
 
     @Test
@@ -219,6 +288,97 @@ class FilmControllerTest extends BaseControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void addLike_concurrentSamePair_countedOnceAndBothCommit() throws Exception {
+        long film = createFilmAndGetId("A", "d", LocalDate.of(2000, 1, 1), 100, 1, new LinkedHashSet<>(Set.of(1L)));
+        long user = createUserAndGetId("race@mail.ru", "race", "n", LocalDate.of(1990, 1, 1));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = pool.submit(() -> tx.execute(status -> {
+                boolean added = filmDbStorage.addLike(film, user);
+                inserted.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return added;
+            }));
+            inserted.await();
+            // вторая вставка той же пары ждёт незакоммиченную строку первой и получает конфликт
+            Future<Boolean> second = pool.submit(() -> tx.execute(status -> filmDbStorage.addLike(film, user)));
+            Thread.sleep(200);
+            commit.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertFalse(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, film));
+        assertEquals(1, jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, film));
+        assertEquals(1, jdbc.queryForObject("SELECT likes_count FROM film_genres WHERE film_id = ?", Integer.class, film));
+    }
+
+    @Test
+    void addLike_unknownFilmOrUser_shouldReturn404() throws Exception {
+        long filmId = createFilmAndGetId(
+                "Alien", "desc", LocalDate.of(1979, 5, 25), 117,
+                4, new LinkedHashSet<>(Set.of(4L))
+        );
+        long userId = createUserAndGetId("ripley@example.com", "ripley", "Ripley", LocalDate.of(1979, 1, 1));
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", 999999, userId))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, 999999))
+                .andExpect(status().isNotFound());
+    }
+
+    // Genres / MPA
+
+    @Test
+    void genresAndMpa_servedFromDictionary() throws Exception {
+        mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(jsonPath("$[0].name").value("Комедия"));
+
+        mockMvc.perform(get("/mpa/{id}", 5))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("NC-17"));
+
+        mockMvc.perform(get("/genres/{id}", 999))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/mpa/{id}", 999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void referenceData_reloadedByActuatorEndpoint() throws Exception {
+        String etag = mockMvc.perform(get("/genres")).andReturn().getResponse().getHeader("ETag");
+        jdbc.update("UPDATE genres SET name = 'Комедия (ред.)' WHERE id = 1");
+        try {
+            // справочник в памяти не знает о правке в обход приложения, пока его не перечитают
+            mockMvc.perform(get("/genres/{id}", 1)).andExpect(jsonPath("$.name").value("Комедия"));
+
+            mockMvc.perform(post("/actuator/referencedata"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.genres").value(6))
+                    .andExpect(jsonPath("$.mpa").value(5));
+            mockMvc.perform(get("/genres").header("If-None-Match", etag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].name").value("Комедия (ред.)"));
+        } finally {
+            jdbc.update("UPDATE genres SET name = 'Комедия' WHERE id = 1");
+            mockMvc.perform(post("/actuator/referencedata")).andExpect(status().isOk());
+        }
+    }
+
     // Popular
 
     @Test
@@ -244,8 +404,322 @@ class FilmControllerTest extends BaseControllerTest {
     }
 
     @Test
-    void getTopFilms_countNonPositive_shouldFail() throws Exception {
+    void getTopFilms_followsLikeRemovalAndUserDeletion() throws Exception {
+        long a = createFilmAndGetId("A", "d", LocalDate.of(2000,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+        long b = createFilmAndGetId("B", "d", LocalDate.of(2000,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+
+        long u1 = createUserAndGetId("top1@ex.com", "top1", "A", LocalDate.of(1990,1,1));
+        long u2 = createUserAndGetId("top2@ex.com", "top2", "B", LocalDate.of(1990,1,1));
+        long u3 = createUserAndGetId("top3@ex.com", "top3", "C", LocalDate.of(1990,1,1));
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", a, u1)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", b, u2)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", b, u3)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$[0].name").value("B"))
+                .andExpect(jsonPath("$[0].likes.length()").value(2));
+
+        // равенство лайков — по возрастанию id
+        mockMvc.perform(delete("/films/{id}/like/{userId}", b, u2)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$[0].name").value("A"))
+                .andExpect(jsonPath("$[1].name").value("B"));
+
+        // лайк удалённого пользователя уходит из рейтинга вместе с ним
+        mockMvc.perform(delete("/users/{id}", u1)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$[0].name").value("B"))
+                .andExpect(jsonPath("$[1].name").value("A"))
+                .andExpect(jsonPath("$[1].likes.length()").value(0));
+
+        mockMvc.perform(delete("/films/{id}", b)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("A"));
+    }
+
+    @Test
+    void getTopFilms_filteredByGenreAndYear_followsLikesUpdatesAndUserDeletion() throws Exception {
+        long a = createFilmAndGetId("A", "d", LocalDate.of(2000,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+        long b = createFilmAndGetId("B", "d", LocalDate.of(2000,6,1), 100, 2, new LinkedHashSet<>(Set.of(2L)));
+        long c = createFilmAndGetId("C", "d", LocalDate.of(1999,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L, 2L)));
+
+        long u1 = createUserAndGetId("flt1@ex.com", "flt1", "A", LocalDate.of(1990,1,1));
+        long u2 = createUserAndGetId("flt2@ex.com", "flt2", "B", LocalDate.of(1990,1,1));
+        long u3 = createUserAndGetId("flt3@ex.com", "flt3", "C", LocalDate.of(1990,1,1));
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", c, u1)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", c, u2)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", b, u3)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("C"))
+                .andExpect(jsonPath("$[1].name").value("A"));
+        mockMvc.perform(get("/films/popular").param("count", "10").param("year", "2000"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("B"))
+                .andExpect(jsonPath("$[1].name").value("A"));
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "2").param("year", "1999"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("C"));
+
+        // правка переносит фильм в другой жанр и год вместе с его лайками
+        ObjectNode upd = objectMapper.createObjectNode();
+        upd.put("id", a);
+        upd.put("releaseDate", "1999-12-31");
+        upd.putArray("genres").add(objectMapper.createObjectNode().put("id", 2));
+        mockMvc.perform(put("/films")
+                        .contentType(json)
+                        .content(objectMapper.writeValueAsString(upd)))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", a, u1)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", a, u2)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", a, u3)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "2").param("year", "1999"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("A"))
+                .andExpect(jsonPath("$[1].name").value("C"));
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("C"));
+
+        // лайки удалённого пользователя снимаются и со счётчиков жанров: у B и C по одному, B раньше по id
+        mockMvc.perform(delete("/users/{id}", u1)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "2").param("genreId", "2"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("A"))
+                .andExpect(jsonPath("$[0].likes.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("B"));
+
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getFilmById_notModifiedUntilFilmOrItsLikesChange() throws Exception {
+        long a = createFilmAndGetId("A", "d", LocalDate.of(2000,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+        long u1 = createUserAndGetId("etag1@ex.com", "etag1", "A", LocalDate.of(1990,1,1));
+
+        String etag = mockMvc.perform(get("/films/{id}", a))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/films/{id}", a).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        // лайк меняет тело ответа — меняется и версия
+        mockMvc.perform(put("/films/{id}/like/{userId}", a, u1)).andExpect(status().isOk());
+        String liked = mockMvc.perform(get("/films/{id}", a).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(1))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, liked);
+
+        // лайк удалённого пользователя исчезает каскадом — версия фильма тоже сдвигается
+        mockMvc.perform(delete("/users/{id}", u1)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", a).header("If-None-Match", liked))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(0));
+
+        mockMvc.perform(get("/films/{id}", 999999).header("If-None-Match", etag))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findAll_notModifiedUntilCatalogChanges() throws Exception {
+        long a = createFilmAndGetId("A", "d", LocalDate.of(2000,1,1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+
+        // версия каталога — счётчик изменений: только ETag, без секундного Last-Modified
+        String etag = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/films").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        String genres = mockMvc.perform(get("/genres")).andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/genres").header("If-None-Match", genres))
+                .andExpect(status().isNotModified());
+
+        ObjectNode upd = objectMapper.createObjectNode();
+        upd.put("id", a);
+        upd.put("name", "A2");
+        mockMvc.perform(put("/films")
+                        .contentType(json)
+                        .content(objectMapper.writeValueAsString(upd)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("A2"));
+
+        etag = mockMvc.perform(get("/films")).andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(delete("/films/{id}", a)).andExpect(status().isOk());
+        mockMvc.perform(get("/films").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void bulkCreate_reportsEveryLine() throws Exception {
+        String body = String.join("\n",
+                "{\"name\":\"A\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":100,"
+                        + "\"mpa\":{\"id\":3},\"genres\":[{\"id\":4},{\"id\":1}]}",
+                "{\"name\":\"\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":100}",
+                "",
+                "{не json",
+                "{\"name\":\"B\",\"description\":\"d\",\"releaseDate\":\"2001-01-01\",\"duration\":90,"
+                        + "\"mpa\":{\"id\":999}}",
+                "{\"name\":\"C\",\"description\":\"d\",\"releaseDate\":\"2002-01-01\",\"duration\":80}");
+
+        String[] results = mockMvc.perform(post("/films/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8)
+                .split("\n");
+
+        assertEquals(5, results.length);
+        long a = objectMapper.readTree(results[0]).get("id").asLong();
+        assertEquals(2, objectMapper.readTree(results[1]).get("line").asInt());
+        assertEquals("Название не может быть пустым!", objectMapper.readTree(results[1]).get("error").asText());
+        assertEquals(4, objectMapper.readTree(results[2]).get("line").asInt());
+        assertTrue(objectMapper.readTree(results[2]).has("error"));
+        assertTrue(objectMapper.readTree(results[3]).get("error").asText().contains("999"));
+        long c = objectMapper.readTree(results[4]).get("id").asLong();
+
+        mockMvc.perform(get("/films/{id}", a))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mpa.name").value("PG-13"))
+                .andExpect(jsonPath("$.genres[0].id").value(1))
+                .andExpect(jsonPath("$.genres[1].id").value(4));
+        mockMvc.perform(get("/films/{id}", c))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mpa.id").value(1));
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/films/popular").param("count", "10"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void bulkCreate_oversizedLine_shouldFail() throws Exception {
+        String body = "{\"name\":\"A\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":100}\n"
+                + "{\"name\":\"" + "x".repeat(70_000) + "\"}\n";
+
+        mockMvc.perform(post("/films/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void similarAndRecommendations_followLikes() throws Exception {
+        long a = createFilmAndGetId("A", "d", LocalDate.of(2000, 1, 1), 100, 1, new LinkedHashSet<>());
+        long b = createFilmAndGetId("B", "d", LocalDate.of(2000, 1, 1), 100, 1, new LinkedHashSet<>());
+        long c = createFilmAndGetId("C", "d", LocalDate.of(2000, 1, 1), 100, 1, new LinkedHashSet<>());
+        long[] users = new long[4];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = createUserAndGetId("colike_" + i + "_" + a + "@mail.ru", "colike_" + i + "_" + a, "n",
+                    LocalDate.of(1990, 1, 1));
+        }
+        long[][] likes = {{a, users[0]}, {b, users[0]}, {a, users[1]}, {c, users[1]}, {a, users[2]}, {c, users[2]}};
+        for (long[] like : likes) {
+            mockMvc.perform(put("/films/{id}/like/{userId}", like[0], like[1])).andExpect(status().isOk());
+        }
+
+        // A и C лайкнули двое из трёх и двух — близость 2/√6, A и B — один из трёх и одного — 1/√3
+        mockMvc.perform(get("/films/{id}/similar", a))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(c))
+                .andExpect(jsonPath("$[1].id").value(b));
+        mockMvc.perform(get("/users/{id}/recommendations", users[0]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(c));
+        mockMvc.perform(get("/users/{id}/recommendations", users[3]))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(delete("/films/{id}/like/{userId}", c, users[1])).andExpect(status().isOk());
+        mockMvc.perform(delete("/films/{id}/like/{userId}", c, users[2])).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}/similar", a))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(b));
+        mockMvc.perform(get("/users/{id}/recommendations", users[0]))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(delete("/films/{id}", b)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}/similar", a))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films/{id}/similar", b))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void search_ranksByFieldAndLikes_andFollowsChanges() throws Exception {
+        long a = createFilmAndGetId("Зефирный дирижабль", "Полёт над морем", LocalDate.of(2000, 1, 1), 100, 1,
+                new LinkedHashSet<>());
+        long b = createFilmAndGetId("Зефирные облака", "Про дирижабли и ёжиков", LocalDate.of(2000, 1, 1), 100, 1,
+                new LinkedHashSet<>());
+        long c = createFilmAndGetId("Cloud Atlas", "Ничего зефирного", LocalDate.of(2000, 1, 1), 100, 1,
+                new LinkedHashSet<>());
+
+        // недописанное слово — префикс; совпадение в названии весомее, чем в описании
+        mockMvc.perform(get("/films/search").param("q", "ЗЕФИР"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(a))
+                .andExpect(jsonPath("$[1].id").value(b))
+                .andExpect(jsonPath("$[2].id").value(c));
+        mockMvc.perform(get("/films/search").param("q", "зефир").param("by", "description"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(c));
+        mockMvc.perform(get("/films/search").param("q", "cloud atl"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(c));
+        // завершённое слово ищется по основе: «дирижабль» находит и «дирижабли»
+        mockMvc.perform(get("/films/search").param("q", "дирижабль "))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(a))
+                .andExpect(jsonPath("$[1].id").value(b));
+
+        long user = createUserAndGetId("search_" + a + "@mail.ru", "search_" + a, "n", LocalDate.of(1990, 1, 1));
+        mockMvc.perform(put("/films/{id}/like/{userId}", b, user)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/search").param("q", "зефир"))
+                .andExpect(jsonPath("$[0].id").value(b))
+                .andExpect(jsonPath("$[1].id").value(a));
+
+        ObjectNode renamed = objectMapper.createObjectNode();
+        renamed.put("id", a);
+        renamed.put("name", "Пустой");
+        mockMvc.perform(put("/films")
+                        .contentType(json)
+                        .content(objectMapper.writeValueAsString(renamed)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/search").param("q", "дирижабль "))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(b));
+        mockMvc.perform(delete("/films/{id}", b)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/search").param("q", "дирижабль "))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/films/search").param("q", "?!")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("q", "зефир").param("by", "year"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTopFilms_countOutOfRange_shouldFail() throws Exception {
         mockMvc.perform(get("/films/popular").param("count", "0"))
                 .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("count", "101"))
+                .andExpect(status().isBadRequest());
     }
 }
\ No newline at end of file
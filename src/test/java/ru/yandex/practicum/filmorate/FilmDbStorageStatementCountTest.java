@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(SqlRecordingConfig.class)
+class FilmDbStorageStatementCountTest extends BaseControllerTest {
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+
+    @Test
+    void findAll_constantNumberOfStatements() throws Exception {
+        long u1 = createUserAndGetId("stmt_a@example.com", "stmt_a", "A", LocalDate.of(1990, 1, 1));
+        long u2 = createUserAndGetId("stmt_b@example.com", "stmt_b", "B", LocalDate.of(1990, 1, 1));
+
+        createLikedFilms(3, u1, u2);
+        assertEquals(3, countStatements(() -> assertEquals(3, filmStorage.findAll().size())));
+
+        createLikedFilms(20, u1, u2);
+        assertEquals(3, countStatements(() -> {
+            Collection<Film> films = filmStorage.findAll();
+            assertEquals(23, films.size());
+            films.forEach(f -> {
+                assertEquals(2, f.getLikes().size());
+                assertEquals(2, f.getGenres().size());
+            });
+        }));
+    }
+
+    @Test
+    void create_writesGenresInOneBatch() throws Exception {
+        filmStorage.create(film("warm-up", 1L, 2L));
+
+        Film[] created = new Film[1];
+        assertEquals(2, countStatements(() -> created[0] = filmStorage.create(film("six genres", 6L, 5L, 4L, 3L, 2L, 1L))));
+
+        assertEquals(6, created[0].getGenres().size());
+        assertEquals(1L, created[0].getGenres().iterator().next().getId());
+        assertEquals("Комедия", created[0].getGenres().iterator().next().getName());
+        assertEquals("PG", created[0].getMpa().getName());
+
+        Film reloaded = filmStorage.getById(created[0].getId());
+        assertEquals(created[0].getGenres(), reloaded.getGenres());
+    }
+
+    @Test
+    void conditionalGet_notModifiedAfterOneStatement() throws Exception {
+        long u1 = createUserAndGetId("stmt_c@example.com", "stmt_c", "C", LocalDate.of(1990, 1, 1));
+        createLikedFilms(1, u1);
+        long id = filmStorage.findAll().iterator().next().getId();
+        String etag = mockMvc.perform(get("/films/{id}", id)).andReturn().getResponse().getHeader("ETag");
+
+        assertEquals(1, countStatements(() -> mockMvc.perform(get("/films/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())));
+    }
+
+    private static Film film(String name, Long... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("d");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(2L, null));
+        for (Long genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return film;
+    }
+
+    private void createLikedFilms(int count, long... userIds) throws Exception {
+        for (int i = 0; i < count; i++) {
+            long filmId = createFilmAndGetId("F" + i, "d", LocalDate.of(2000, 1, 1), 100,
+                    2, new LinkedHashSet<>(Set.of(1L, 2L)));
+            for (long userId : userIds) {
+                mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                        .andExpect(status().isOk());
+            }
+        }
+    }
+
+    private static int countStatements(SqlRecordingConfig.Action action) throws Exception {
+        return SqlRecordingConfig.record(action).size();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.services.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FriendGraphTest {
+
+    private static final int USERS = 300;
+
+    @Test
+    void suggestions_matchBruteForceAcrossPatchesAndMerges() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("g" + i + "@mail.ru");
+            user.setLogin("g" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            storage.create(user);
+        }
+        Random rnd = new Random(7);
+        Map<Long, TreeSet<Long>> friends = new HashMap<>();
+        for (int i = 0; i < USERS * 5; i++) {
+            connect(storage, friends, 1 + rnd.nextInt(USERS), 1 + rnd.nextInt(USERS));
+        }
+        FriendGraph graph = new FriendGraph(storage);
+        graph.rebuild();
+        assertAll(graph, friends);
+
+        // правок больше порога — часть из них влита в новую основу, часть лежит поверх неё
+        for (int i = 0; i < 10_000; i++) {
+            long from = 1 + rnd.nextInt(USERS);
+            long to = 1 + rnd.nextInt(USERS);
+            if (from == to) continue;
+            if (rnd.nextInt(3) == 0) {
+                friends.getOrDefault(from, new TreeSet<>()).remove(to);
+                graph.removeFriend(from, to);
+            } else {
+                friends.computeIfAbsent(from, k -> new TreeSet<>()).add(to);
+                graph.addFriend(from, to);
+            }
+        }
+        assertAll(graph, friends);
+
+        // удалённый пользователь пропадает и со своим списком, и из чужих
+        for (long removed = 1; removed <= USERS; removed += 10) {
+            List<Long> friendedBy = new ArrayList<>();
+            for (Map.Entry<Long, TreeSet<Long>> entry : new TreeMap<>(friends).entrySet()) {
+                if (entry.getValue().remove(removed)) friendedBy.add(entry.getKey());
+            }
+            friends.remove(removed);
+            graph.removeUser(removed, friendedBy.stream().mapToLong(Long::longValue).toArray());
+        }
+        assertAll(graph, friends);
+    }
+
+    private static void connect(InMemoryUserStorage storage, Map<Long, TreeSet<Long>> friends, long from, long to) {
+        if (from == to) return;
+        storage.setFriendConnection(from, to, FriendshipStatus.CONFIRMED);
+        friends.computeIfAbsent(from, k -> new TreeSet<>()).add(to);
+    }
+
+    private static void assertAll(FriendGraph graph, Map<Long, TreeSet<Long>> friends) {
+        for (long user = 1; user <= USERS; user++) {
+            assertArrayEquals(bruteForce(friends, user, 10), graph.suggestions(user, 10), "user " + user);
+        }
+    }
+
+    private static long[] bruteForce(Map<Long, TreeSet<Long>> friends, long user, int limit) {
+        Set<Long> own = friends.getOrDefault(user, new TreeSet<>());
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (Long friend : own) {
+            for (Long candidate : friends.getOrDefault(friend, new TreeSet<>())) {
+                if (candidate != user && !own.contains(candidate)) mutual.merge(candidate, 1, Integer::sum);
+            }
+        }
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
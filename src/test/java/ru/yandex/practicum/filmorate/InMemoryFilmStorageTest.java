@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+
+    @Test
+    void create_nullLikes_storedAsEmpty() {
+        Film film = new Film();
+        film.setName("A");
+        film.setDescription("d");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1L, "G"));
+        film.setLikes(null);
+
+        long id = storage.create(film).getId();
+
+        assertTrue(film.getLikes().isEmpty());
+        assertTrue(storage.getById(id).getLikes().isEmpty());
+        assertTrue(storage.addLike(id, 7L));
+        assertEquals(1, storage.getById(id).getLikes().size());
+    }
+}
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.services.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Стресс-тест InMemory-хранилищ: одни и те же операции из многих потоков
+ * должны давать тот же итог, что и любое последовательное их выполнение.
+ */
+class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 2_000;
+
+    @Test
+    void create_concurrentlyAllocatesUniqueDenseIds() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                ids.add(storage.create(film("F" + thread + "-" + i)).getId());
+            }
+        });
+
+        int total = THREADS * OPS_PER_THREAD;
+        assertEquals(total, ids.size());
+        assertEquals(1L, Collections.min(ids));
+        assertEquals(total, Collections.max(ids));
+        assertEquals(total, storage.findAll().size());
+    }
+
+    @Test
+    void addLike_eachPairAcceptedExactlyOnceAndSurvivesUpdates() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        int filmCount = 10;
+        for (int i = 0; i < filmCount; i++) {
+            storage.create(film("F" + i));
+        }
+        AtomicInteger accepted = new AtomicInteger();
+
+        // каждый поток пытается поставить все лайки; параллельно фильмы обновляются и читаются
+        runConcurrently(thread -> {
+            for (long user = 1; user <= OPS_PER_THREAD; user++) {
+                long filmId = 1 + user % filmCount;
+                if (storage.addLike(filmId, user)) {
+                    accepted.incrementAndGet();
+                }
+                if (user % 100 == thread) {
+                    Film snapshot = storage.getById(filmId);
+                    snapshot.setName("updated by " + thread);
+                    snapshot.getLikes().clear();
+                    storage.update(snapshot);
+                }
+                storage.findPopularIds(3, null, 2000);
+            }
+        });
+
+        assertEquals(OPS_PER_THREAD, accepted.get());
+        int likes = 0;
+        for (Film film : storage.findAll()) {
+            likes += film.getLikes().size();
+        }
+        assertEquals(OPS_PER_THREAD, likes);
+    }
+
+    @Test
+    void leaderboard_matchesStorageAfterConcurrentLikes() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        int filmCount = 50;
+        for (int i = 0; i < filmCount; i++) {
+            storage.create(film("F" + i));
+        }
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(storage);
+        leaderboard.rebuild();
+
+        runConcurrently(thread -> {
+            Random rnd = new Random(thread);
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                long filmId = 1 + rnd.nextInt(filmCount);
+                long userId = 1 + rnd.nextInt(20);
+                if (rnd.nextInt(3) == 0) {
+                    leaderboard.applyLike(filmId, -1, () -> storage.removeLike(filmId, userId));
+                } else {
+                    leaderboard.applyLike(filmId, 1, () -> storage.addLike(filmId, userId));
+                }
+                if (i % 500 == 0 && thread == 0) {
+                    leaderboard.rebuild();
+                }
+                assertTrue(leaderboard.top(5).size() <= 5);
+            }
+        });
+
+        // все фильмы одного года — фильтр по нему даёт полный рейтинг хранилища
+        List<Long> expected = storage.findPopularIds(filmCount, null, 2000);
+        assertEquals(expected, leaderboard.top(filmCount));
+    }
+
+    @Test
+    void getById_returnsDetachedCopy() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        long id = storage.create(film("original")).getId();
+        storage.addLike(id, 1L);
+
+        Film copy = storage.getById(id);
+        copy.setName("changed");
+        copy.getLikes().add(2L);
+
+        Film stored = storage.getById(id);
+        assertEquals("original", stored.getName());
+        assertEquals(Set.of(1L), stored.getLikes());
+    }
+
+    @Test
+    void friendships_concurrentAddRemoveConvergeToExpectedSet() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        int userCount = THREADS * 50 + 1;
+        for (int i = 0; i < userCount; i++) {
+            storage.create(user(i));
+        }
+
+        // поток t добавляет друзей своего диапазона, а затем удаляет нечётных;
+        // все потоки работают с одним и тем же пользователем 1
+        runConcurrently(thread -> {
+            long from = 2 + thread * 50L;
+            for (long to = from; to < from + 50; to++) {
+                storage.setFriendConnection(1L, to, FriendshipStatus.CONFIRMED);
+                storage.getFriends(1L);
+            }
+            for (long to = from + 1; to < from + 50; to += 2) {
+                storage.removeFriendConnection(1L, to);
+                storage.getCommonFriends(1L, to);
+            }
+        });
+
+        List<Long> expected = new ArrayList<>();
+        for (long to = 2; to < 2 + THREADS * 50L; to += 2) {
+            expected.add(to);
+        }
+        assertEquals(expected, storage.getFriends(1L).stream().map(User::getId).toList());
+    }
+
+    private static void runConcurrently(ThrowingTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("d");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1L, "G"));
+        return film;
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setEmail("u" + i + "@example.com");
+        user.setLogin("u" + i);
+        user.setName("U" + i);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingTask {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+
+    private final InMemoryUserStorage storage = new InMemoryUserStorage();
+
+    @Test
+    void friendConnection_unchanged_keepsUserVersion() {
+        long id = storage.create(user("a")).getId();
+        long friendId = storage.create(user("b")).getId();
+        Version created = storage.getVersion(id);
+
+        storage.setFriendConnection(id, friendId, FriendshipStatus.CONFIRMED);
+        Version added = storage.getVersion(id);
+        assertNotEquals(created, added);
+        storage.setFriendConnection(id, friendId, FriendshipStatus.CONFIRMED);
+        assertEquals(added, storage.getVersion(id));
+
+        storage.removeFriendConnection(id, friendId);
+        Version removed = storage.getVersion(id);
+        assertNotEquals(added, removed);
+        storage.removeFriendConnection(id, friendId);
+        assertEquals(removed, storage.getVersion(id));
+    }
+
+    @Test
+    void deleteById_removesUserFromOtherFriendLists() {
+        long id = storage.create(user("c")).getId();
+        long follower = storage.create(user("d")).getId();
+        long other = storage.create(user("e")).getId();
+        storage.setFriendConnection(follower, id, FriendshipStatus.CONFIRMED);
+        storage.setFriendConnection(follower, other, FriendshipStatus.CONFIRMED);
+        storage.setFriendConnection(id, follower, FriendshipStatus.CONFIRMED);
+        Version before = storage.getVersion(follower);
+
+        assertArrayEquals(new long[]{follower}, storage.deleteById(id).friendedBy());
+
+        assertArrayEquals(new long[0], storage.findFriendedByIds(id));
+        assertEquals(List.of(other), storage.getFriends(follower).stream().map(User::getId).toList());
+        assertNotEquals(before, storage.getVersion(follower));
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
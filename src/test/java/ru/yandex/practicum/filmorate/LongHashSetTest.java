@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LongHashSet;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void randomOperations_behaveLikeHashSet() {
+        Random rnd = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // узкий диапазон — много коллизий, повторов и удалений из середины цепочек
+            long value = rnd.nextInt(5_000) - 10;
+            switch (rnd.nextInt(3)) {
+                case 0, 1 -> assertEquals(expected.add(value), set.add(value));
+                default -> assertEquals(expected.remove(value), set.remove(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        for (long value = -10; value < 4_990; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertEquals(expected, set);
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertEquals(expected, new HashSet<>(set));
+
+        set.removeIf(v -> v % 2 == 0);
+        expected.removeIf(v -> v % 2 == 0);
+        assertEquals(expected, set);
+    }
+
+    @Test
+    void json_isPlainArrayOfIds() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Film film = new Film();
+        film.getLikes().add(7L);
+
+        String json = mapper.writeValueAsString(film);
+        assertTrue(json.contains("\"likes\":[7]"), json);
+
+        Film read = mapper.readValue("{\"likes\":[3,1,2]}", Film.class);
+        assertInstanceOf(LongHashSet.class, read.getLikes());
+        assertEquals(Set.of(1L, 2L, 3L), read.getLikes());
+        assertTrue(List.of(1L, 2L, 3L).containsAll(read.getLikes()));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.metrics.MeteredJdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MeteredJdbcTemplateTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MeteredJdbcTemplate jdbc;
+
+    MeteredJdbcTemplateTest() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:metered_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        jdbc = new MeteredJdbcTemplate(dataSource, () -> registry);
+        jdbc.update("/* t.create */ CREATE TABLE t (id BIGINT PRIMARY KEY)");
+        jdbc.batchUpdate("/* t.insert */ INSERT INTO t (id) VALUES (?)",
+                List.of(new Object[]{1L}, new Object[]{2L}, new Object[]{3L}));
+    }
+
+    @Test
+    void recordsRowsOfEveryQueryKindByStatementName() {
+        jdbc.query("/* t.mapped */ SELECT id FROM t WHERE id > ?", (rs, n) -> rs.getLong(1), 1L);
+        jdbc.query("/* t.callback */ SELECT id FROM t", (RowCallbackHandler) rs -> rs.getLong(1));
+        jdbc.query("/* t.callback */ SELECT id FROM t WHERE id = ?", (RowCallbackHandler) rs -> rs.getLong(1), 3L);
+        jdbc.query("/* t.fetched */ SELECT id FROM t", ps -> ps.setFetchSize(2), (RowCallbackHandler) rs -> rs.getLong(1));
+        jdbc.queryForObject("/* t.count */ SELECT COUNT(*) FROM t", Integer.class);
+        new NamedParameterJdbcTemplate(jdbc).queryForList("/* t.named */ SELECT id FROM t WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", List.of(1L, 2L)), Long.class);
+        jdbc.update("/* t.delete */ DELETE FROM t WHERE id > ?", 1L);
+        jdbc.update("DELETE FROM t");
+
+        assertRows("t.insert", 1, 3);
+        assertRows("t.mapped", 1, 2);
+        assertRows("t.callback", 2, 4);
+        assertRows("t.fetched", 1, 3);
+        assertRows("t.count", 1, 1);
+        assertRows("t.named", 1, 2);
+        assertRows("t.delete", 1, 2);
+        assertRows("unnamed", 1, 1);
+    }
+
+    private void assertRows(String statement, long calls, double rows) {
+        assertEquals(calls, registry.get("filmorate.sql").tag("statement", statement).timer().count(), statement);
+        assertEquals(rows, registry.get("filmorate.sql.rows").tag("statement", statement).summary().totalAmount(),
+                statement);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureObservability
+class MetricsEndpointTest extends BaseControllerTest {
+
+    @Test
+    void prometheus_exposesEndpointSqlDomainAndPoolMetrics() throws Exception {
+        long film = createFilmAndGetId("M", "d", LocalDate.of(2000, 1, 1), 100, 2, new LinkedHashSet<>(Set.of(1L)));
+        long user = createUserAndGetId("metrics@ex.com", "metrics", "M", LocalDate.of(1990, 1, 1));
+        mockMvc.perform(put("/films/{id}/like/{userId}", film, user)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", film)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", 999_999)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/genres")).andExpect(status().isOk());
+
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertMetric(body, "http_server_requests_seconds{", "uri=\"/genres\"", "quantile=\"0.99\"");
+        assertMetric(body, "http_server_requests_seconds_bucket{", "uri=\"/films/{id}\"", "status=\"404\"");
+        assertMetric(body, "filmorate_sql_seconds_count{", "statement=\"film.addLike\"");
+        assertMetric(body, "filmorate_sql_rows_sum{", "statement=\"film.findById\"");
+        assertMetric(body, "filmorate_likes_total{", "operation=\"add\"");
+        assertMetric(body, "filmorate_errors_total{", "type=\"NotFoundException\"");
+        assertMetric(body, "hikaricp_connections_active{");
+    }
+
+    private static void assertMetric(String body, String prefix, String... labels) {
+        boolean found = Arrays.stream(body.split("\n"))
+                .filter(line -> line.startsWith(prefix))
+                .anyMatch(line -> Arrays.stream(labels).allMatch(line::contains));
+        assertTrue(found, () -> "нет метрики " + prefix + " " + String.join(", ", labels));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.services.FilmEvent;
+import ru.yandex.practicum.filmorate.services.PopularFilms;
+import ru.yandex.practicum.filmorate.services.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.services.PopularQuery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularFilmsCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    // топ-2: фильм 1 с пятью лайками, фильм 2 с тремя
+    private final Function<PopularQuery, PopularFilms> loader = query -> {
+        loads.incrementAndGet();
+        return new PopularFilms(List.of(film(1, 5), film(2, 3)), Version.of("films", 2, null));
+    };
+
+    @Test
+    void get_reloadsOnlyAfterEventsThatAffectTheResult() {
+        PopularFilmsCache cache = new PopularFilmsCache(registry, Duration.ZERO, 64);
+        PopularQuery top2 = new PopularQuery(2);
+
+        cache.get(top2, loader);
+        cache.get(top2, loader);
+        assertEquals(1, loads.get());
+
+        // не попадает в топ и не касается его фильмов
+        cache.onFilmEvent(FilmEvent.likesChanged(3, 2));
+        cache.onFilmEvent(FilmEvent.deleted(99));
+        cache.onFilmEvent(FilmEvent.created(100));
+        cache.get(top2, loader);
+        assertEquals(1, loads.get());
+
+        // лайк выводит фильм 3 на равенство с последним, а id у него больше — всё ещё вне топа
+        cache.onFilmEvent(FilmEvent.likesChanged(3, 3));
+        cache.get(top2, loader);
+        assertEquals(1, loads.get());
+
+        cache.onFilmEvent(FilmEvent.likesChanged(3, 4));
+        cache.get(top2, loader);
+        assertEquals(2, loads.get());
+
+        cache.onFilmEvent(FilmEvent.updated(2));
+        cache.get(top2, loader);
+        assertEquals(3, loads.get());
+
+        cache.onFilmEvent(FilmEvent.catalogChanged());
+        cache.get(top2, loader);
+        assertEquals(4, loads.get());
+
+        assertEquals(3.0, registry.get("filmorate.cache.gets").tag("result", "hit").counter().count());
+        assertEquals(4.0, registry.get("filmorate.cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_servesStaleResultWithinMaxStaleness() {
+        PopularFilmsCache cache = new PopularFilmsCache(registry, Duration.ofHours(1), 64);
+        PopularQuery top2 = new PopularQuery(2);
+
+        PopularFilms first = cache.get(top2, loader);
+        cache.onFilmEvent(FilmEvent.likesChanged(1, 6));
+
+        assertSame(first, cache.get(top2, loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_storesReadOnlyCopyOfLoadedFilms() {
+        PopularFilmsCache cache = new PopularFilmsCache(registry, Duration.ZERO, 64);
+        List<Film> loaded = List.of(film(1, 5), film(2, 3));
+
+        PopularFilms cached = cache.get(new PopularQuery(2), query -> new PopularFilms(loaded, null));
+        loaded.get(0).getLikes().add(100L);
+        loaded.get(0).setName("изменён после загрузки");
+
+        Film first = cached.films().get(0);
+        assertEquals(5, first.getLikes().size());
+        assertNull(first.getName());
+        assertThrows(UnsupportedOperationException.class, () -> first.getLikes().add(6L));
+        assertThrows(UnsupportedOperationException.class, () -> first.setName("x"));
+        assertThrows(UnsupportedOperationException.class, () -> cached.films().remove(0));
+    }
+
+    @Test
+    void get_runsOneLoadForConcurrentMisses() throws Exception {
+        PopularFilmsCache cache = new PopularFilmsCache(registry, Duration.ZERO, 64);
+        PopularQuery top2 = new PopularQuery(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<PopularQuery, PopularFilms> slow = query -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(query);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PopularFilms>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get(top2, slow)));
+            }
+            // все промахнулись и ждут единственную загрузку
+            while (registry.get("filmorate.cache.gets").tag("result", "miss").counter().count() < 8) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            PopularFilms expected = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<PopularFilms> result : results) {
+                assertSame(expected, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Film film(long id, int likes) {
+        Film film = new Film();
+        film.setId(id);
+        for (long user = 1; user <= likes; user++) {
+            film.getLikes().add(user);
+        }
+        return film;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы запросов популярных фильмов с фильтром: каждый читает свой вторичный индекс уже
+ * в порядке выдачи (H2 помечает это «index sorted») и сканирует ровно count строк,
+ * а не все фильмы жанра или года.
+ */
+@Import(SqlRecordingConfig.class)
+class PopularFilmsQueryPlanTest extends BaseControllerTest {
+
+    private static final int COUNT = 3;
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void filteredPopular_readsIndexInOrderAndStopsAtCount() throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 20; i++) films.add(film(2000 + i % 2, 1L + i % 2));
+        filmStorage.createAll(films);
+
+        assertPlan(() -> filmStorage.findPopularIds(COUNT, null, 2000),
+                "IDX_FILMS_YEAR_POPULARITY", 2000, COUNT);
+        assertPlan(() -> filmStorage.findPopularIds(COUNT, 1L, null),
+                "IDX_FILM_GENRES_POPULARITY", 1L, COUNT);
+        assertPlan(() -> filmStorage.findPopularIds(COUNT, 1L, 2000),
+                "IDX_FILM_GENRES_YEAR_POPULARITY", 1L, 2000, COUNT);
+    }
+
+    private void assertPlan(SqlRecordingConfig.Action query, String index, Object... args) throws Exception {
+        List<String> statements = SqlRecordingConfig.record(query);
+        List<String> popular = statements.stream().filter(sql -> sql.contains("/* film.popularBy")).toList();
+        assertEquals(1, popular.size(), "ожидался один запрос популярных: " + statements);
+
+        String plan = jdbc.queryForObject("EXPLAIN ANALYZE " + popular.get(0), String.class, args);
+        assertTrue(plan.contains("PUBLIC." + index + ":"), plan);
+        assertTrue(plan.contains("/* index sorted */"), plan);
+        assertTrue(plan.contains("/* scanCount: " + COUNT + " */"), plan);
+    }
+
+    private static Film film(int year, Long genreId) {
+        Film film = new Film();
+        film.setName("plan " + year);
+        film.setDescription("d");
+        film.setReleaseDate(LocalDate.of(year, 5, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1L, null));
+        film.getGenres().add(new Genre(genreId, null));
+        return film;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.QueryFanOut;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryFanOutTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void run_executesSubtasksConcurrently() {
+        QueryFanOut fanOut = new QueryFanOut(executor, 2, Duration.ofSeconds(5));
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Runnable waitForOthers = () -> {
+            allStarted.countDown();
+            try {
+                assertTrue(allStarted.await(5, TimeUnit.SECONDS), "подзадачи выполнялись последовательно");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        fanOut.run(waitForOthers, waitForOthers, waitForOthers);
+    }
+
+    @Test
+    void run_withoutPermitsFallsBackToCallerThread() {
+        QueryFanOut fanOut = new QueryFanOut(executor, 0, Duration.ofSeconds(5));
+        Thread caller = Thread.currentThread();
+        AtomicInteger inCaller = new AtomicInteger();
+        Runnable task = () -> {
+            if (Thread.currentThread() == caller) inCaller.incrementAndGet();
+        };
+
+        fanOut.run(task, task, task);
+
+        assertEquals(3, inCaller.get());
+    }
+
+    @Test
+    void run_rethrowsSubtaskFailure() {
+        QueryFanOut fanOut = new QueryFanOut(executor, 2, Duration.ofSeconds(5));
+
+        assertThrows(NotFoundException.class, () -> fanOut.run(
+                () -> { },
+                () -> {
+                    throw new NotFoundException("нет");
+                }));
+    }
+
+    @Test
+    void run_failsOnTimeoutAndReleasesPermitOnlyAfterTaskEnds() throws Exception {
+        QueryFanOut fanOut = new QueryFanOut(executor, 1, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThrows(QueryTimeoutException.class, () -> fanOut.run(() -> { }, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        // зависшая подзадача ещё выполняется и держит разрешение — подзапросы идут в вызывающем потоке
+        Thread caller = Thread.currentThread();
+        assertSame(caller, threadOfSecondTask(fanOut));
+
+        // разрешение возвращается только после того, как она действительно завершилась
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (threadOfSecondTask(fanOut) == caller) {
+            assertTrue(System.nanoTime() < deadline, "разрешение не вернулось после завершения подзадачи");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Thread threadOfSecondTask(QueryFanOut fanOut) {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        fanOut.run(() -> { }, () -> thread.set(Thread.currentThread()));
+        return thread.get();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.migration.SchemaMigrator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    SchemaMigratorTest() {
+        dataSource.setURL("jdbc:h2:mem:migration_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+    }
+
+    @Test
+    void migrate_appliesAllOnEmptyDatabaseAndNothingOnRestart() {
+        int applied = new SchemaMigrator(dataSource).migrate();
+
+        assertTrue(applied > 0);
+        assertEquals(applied, jdbc.queryForObject("SELECT COUNT(*) FROM schema_history", Integer.class));
+        assertEquals(6, jdbc.queryForObject("SELECT COUNT(*) FROM genres", Integer.class));
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM mpa", Integer.class));
+
+        assertEquals(0, new SchemaMigrator(dataSource).migrate());
+        assertEquals(applied, jdbc.queryForObject("SELECT COUNT(*) FROM schema_history", Integer.class));
+    }
+
+    @Test
+    void migrate_bringsDatabaseCreatedByHandUpToDate() {
+        // как в старом db-init: mpa.name короче, часть справочника уже заполнена
+        jdbc.execute("CREATE TABLE mpa (id INT PRIMARY KEY, name VARCHAR(10) NOT NULL UNIQUE)");
+        jdbc.update("INSERT INTO mpa (id, name) VALUES (1, 'G')");
+
+        new SchemaMigrator(dataSource).migrate();
+
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM mpa", Integer.class));
+        assertEquals(32, jdbc.queryForObject("""
+                SELECT character_maximum_length
+                FROM information_schema.columns
+                WHERE table_name = 'MPA' AND column_name = 'NAME'
+                """, Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(likes_count) FROM films", Integer.class));
+    }
+
+    @Test
+    void migrate_failsWhenAppliedScriptWasChanged() {
+        new SchemaMigrator(dataSource).migrate();
+        jdbc.update("UPDATE schema_history SET checksum = 'edited' WHERE version = 1");
+
+        assertThrows(IllegalStateException.class, () -> new SchemaMigrator(dataSource).migrate());
+    }
+}
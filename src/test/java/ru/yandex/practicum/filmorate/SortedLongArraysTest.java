@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.SortedLongArrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongArraysTest {
+
+    @Test
+    void with_insertsInOrder_andReturnsSameArrayForPresentId() {
+        long[] ids = {2, 5, 9};
+
+        assertArrayEquals(new long[]{1, 2, 5, 9}, SortedLongArrays.with(ids, 1));
+        assertArrayEquals(new long[]{2, 5, 7, 9}, SortedLongArrays.with(ids, 7));
+        assertArrayEquals(new long[]{2, 5, 9, 10}, SortedLongArrays.with(ids, 10));
+        assertSame(ids, SortedLongArrays.with(ids, 5));
+        assertArrayEquals(new long[]{2, 5, 9}, ids);
+    }
+
+    @Test
+    void without_removesId_andReturnsSameArrayForAbsentId() {
+        long[] ids = {2, 5, 9};
+
+        assertArrayEquals(new long[]{5, 9}, SortedLongArrays.without(ids, 2));
+        assertArrayEquals(new long[]{2, 9}, SortedLongArrays.without(ids, 5));
+        assertArrayEquals(new long[0], SortedLongArrays.without(new long[]{5}, 5));
+        assertSame(ids, SortedLongArrays.without(ids, 7));
+        assertArrayEquals(new long[]{2, 5, 9}, ids);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Оборачивает DataSource приложения и записывает каждый оператор, открытый на его соединениях:
+ * SQL для prepareStatement/prepareCall, имя метода для createStatement.
+ * Подключается через @Import; тесты с ним делят один контекст и одну запись.
+ */
+@TestConfiguration
+class SqlRecordingConfig {
+
+    private static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Операторы, открытые за время action.
+     */
+    static List<String> record(Action action) throws Exception {
+        STATEMENTS.clear();
+        action.run();
+        return List.copyOf(STATEMENTS);
+    }
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    @Bean
+    static BeanPostProcessor sqlRecordingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds ? new RecordingDataSource(ds) : bean;
+            }
+        };
+    }
+
+    private static class RecordingDataSource extends DelegatingDataSource {
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recording(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recording(super.getConnection(username, password));
+        }
+
+        private static Connection recording(Connection target) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                            STATEMENTS.add((String) args[0]);
+                        } else if (name.equals("createStatement")) {
+                            STATEMENTS.add(name);
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package ru.yandex.practicum.filmorate;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Version;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.DeletedUser;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class UserControllerTest extends BaseControllerTest {
 
+    @Autowired
+    @Qualifier("userDbStorage")
+    private UserStorage userDbStorage;
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmDbStorage;
+
     @Test
     void createUser_ok() throws Exception {
         User u = new User();
@@ -132,6 +150,26 @@ class UserControllerTest extends BaseControllerTest {
                 .andExpect(jsonPath("$[1].id").exists());
     }
 
+    @Test
+    void findPage_returnsNextCursor() throws Exception {
+        long first = createUserAndGetId("page_a@example.com", "page_a", "PageA", LocalDate.of(1990, 1, 1));
+        long second = createUserAndGetId("page_b@example.com", "page_b", "PageB", LocalDate.of(1990, 1, 1));
+        long third = createUserAndGetId("page_c@example.com", "page_c", "PageC", LocalDate.of(1990, 1, 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("after", String.valueOf(first - 1))
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value((int) first))
+                .andExpect(jsonPath("$.items[1].id").value((int) second))
+                .andExpect(jsonPath("$.nextCursor").value((int) second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("after", String.valueOf(second))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value((int) third));
+    }
 
     @Test
     void removeFriend_mutualRemoval_ok() throws Exception {
@@ -170,6 +208,29 @@ class UserControllerTest extends BaseControllerTest {
                 .andExpect(jsonPath("$[0]").doesNotExist());
     }
 
+    @Test
+    void getFriends_returnsHydratedFriends() throws Exception {
+        long id = createUserAndGetId("fr_owner@example.com", "fr_owner", "Owner", LocalDate.of(1990, 1, 1));
+        long f1 = createUserAndGetId("fr_one@example.com", "fr_one", "One", LocalDate.of(1991, 1, 1));
+        long f2 = createUserAndGetId("fr_two@example.com", "fr_two", "Two", LocalDate.of(1992, 1, 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", id, f2))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", id, f1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value((int) f1))
+                .andExpect(jsonPath("$[0].login").value("fr_one"))
+                .andExpect(jsonPath("$[1].id").value((int) f2))
+                .andExpect(jsonPath("$[1].email").value("fr_two@example.com"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends", 999999))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void getCommonFriends_oneCommon_ok() throws Exception {
         // создаём трёх юзеров: A, B и C
@@ -252,6 +313,115 @@ class UserControllerTest extends BaseControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getUserById_notModifiedUntilFriendsChange() throws Exception {
+        long id = createUserAndGetId("etag_user@example.com", "etag_user", "U", LocalDate.of(1990, 1, 1));
+        long friendId = createUserAndGetId("etag_friend@example.com", "etag_friend", "F", LocalDate.of(1990, 1, 1));
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", id, friendId))
+                .andExpect(status().isOk());
+        String withFriend = mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.friends.length()").value(1))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // удалённый друг пропадает из списка каскадом — версия пользователя тоже меняется
+        mockMvc.perform(MockMvcRequestBuilders.delete("/users/{id}", friendId))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", id).header("If-None-Match", withFriend))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.friends.length()").value(0));
+    }
+
+    @Test
+    void friendConnection_unchanged_keepsUserVersion() throws Exception {
+        long id = createUserAndGetId("touch_user@example.com", "touch_user", "U", LocalDate.of(1990, 1, 1));
+        long friendId = createUserAndGetId("touch_friend@example.com", "touch_friend", "F", LocalDate.of(1990, 1, 1));
+
+        userDbStorage.setFriendConnection(id, friendId, FriendshipStatus.CONFIRMED);
+        Version added = userDbStorage.getVersion(id);
+        userDbStorage.setFriendConnection(id, friendId, FriendshipStatus.CONFIRMED);
+        assertEquals(added, userDbStorage.getVersion(id));
+
+        userDbStorage.removeFriendConnection(id, friendId);
+        Version removed = userDbStorage.getVersion(id);
+        assertNotEquals(added, removed);
+        userDbStorage.removeFriendConnection(id, friendId);
+        assertEquals(removed, userDbStorage.getVersion(id));
+    }
+
+    @Test
+    void deleteById_returnsWhatWentWithTheUser() throws Exception {
+        long id = createUserAndGetId("gone_user@example.com", "gone_user", "G", LocalDate.of(1990, 1, 1));
+        long follower = createUserAndGetId("gone_follower@example.com", "gone_follower", "F", LocalDate.of(1990, 1, 1));
+        long filmA = createFilmAndGetId("Gone A", "d", LocalDate.of(2001, 1, 1), 90, 1, new LinkedHashSet<>());
+        long filmB = createFilmAndGetId("Gone B", "d", LocalDate.of(2001, 1, 1), 90, 1, new LinkedHashSet<>());
+        // мимо сервисов: рейтинг и граф дружбы этих изменений не видят, поэтому и откатывать их не нужно
+        filmDbStorage.addLike(filmB, id);
+        filmDbStorage.addLike(filmA, id);
+        userDbStorage.setFriendConnection(follower, id, FriendshipStatus.CONFIRMED);
+
+        DeletedUser deleted = userDbStorage.deleteById(id);
+
+        assertEquals(id, deleted.id());
+        assertArrayEquals(new long[]{filmA, filmB}, deleted.likedFilmIds());
+        assertArrayEquals(new long[]{follower}, deleted.friendedBy());
+        assertEquals(0, filmDbStorage.getById(filmA).getLikes().size());
+        assertEquals(0, userDbStorage.getFriends(follower).size());
+    }
+
+    @Test
+    void getFriendSuggestions_rankedByMutualFriends() throws Exception {
+        long a = createUserAndGetId("sg_a@example.com", "sg_a", "SGA", LocalDate.of(1990, 1, 1));
+        long b = createUserAndGetId("sg_b@example.com", "sg_b", "SGB", LocalDate.of(1990, 1, 1));
+        long c = createUserAndGetId("sg_c@example.com", "sg_c", "SGC", LocalDate.of(1990, 1, 1));
+        long d = createUserAndGetId("sg_d@example.com", "sg_d", "SGD", LocalDate.of(1990, 1, 1));
+        long e = createUserAndGetId("sg_e@example.com", "sg_e", "SGE", LocalDate.of(1990, 1, 1));
+        long[][] edges = {{a, b}, {a, c}, {b, a}, {b, d}, {c, d}, {c, e}};
+        for (long[] edge : edges) {
+            mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", edge[0], edge[1]))
+                    .andExpect(status().isOk());
+        }
+
+        // D — общий друг у B и C, E — только у C; сам A и его друзья не предлагаются
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", a))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value((int) d))
+                .andExpect(jsonPath("$[1].id").value((int) e));
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", a).param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value((int) d));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", a, d))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/users/{id}/friends/{friendId}", c, e))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", a))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/users/{id}/friends/{friendId}", d, e))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", a))
+                .andExpect(jsonPath("$[0].id").value((int) e));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/users/{id}", e))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", a))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getFriendSuggestions_unknownUser_shouldReturn404() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}/friends/suggestions", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteUser_notFound() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.delete("/users/{id}", 999999))